@@ -0,0 +1,95 @@
+package app.sedu.mc.parties.boss;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ReferenceSet;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.MobCategory;
+
+/**
+ * Boss checks on entity join: {@link BossTypeMatcher#isBoss(EntityType)},
+ * as called by {@link BossModule}, against the string list lookup it
+ * replaced. About 1200 entity types, as in a large pack, with 40 configured
+ * bosses. The types are built but never registered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BossMatchBenchmark {
+    private static final int TYPES = 1200;
+    private static final int BOSSES = 40;
+    private static final int CHECKS = 1024;
+
+    private final BossTypeMatcher matcher = new BossTypeMatcher();
+    private final List<String> entries = new ArrayList<>();
+    private String[] names;
+    private EntityType<?>[] types;
+    private int[] checks;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        names = new String[TYPES];
+        types = new EntityType<?>[TYPES];
+        ReferenceSet<EntityType<?>> resolved = new ReferenceOpenHashSet<>();
+        for (int id = 0; id < TYPES; id++) {
+            names[id] = "mod" + id % 30 + ":entity_" + id;
+            types[id] = EntityType.Builder.<Entity>of((type, level) -> null, MobCategory.MONSTER).noSave()
+                .build(names[id]);
+        }
+        for (int i = 0; i < BOSSES; i++) {
+            int id = random.nextInt(TYPES);
+            resolved.add(types[id]);
+            entries.add(names[id]);
+        }
+        matcher.set(resolved);
+        checks = new int[CHECKS];
+        for (int i = 0; i < CHECKS; i++) {
+            checks[i] = random.nextInt(TYPES);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHECKS)
+    public int resolvedTypes() {
+        int bosses = 0;
+        for (int i = 0; i < CHECKS; i++) {
+            if (matcher.isBoss(types[checks[i]])) {
+                bosses++;
+            }
+        }
+        return bosses;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHECKS)
+    public int stringList() {
+        int bosses = 0;
+        for (int i = 0; i < CHECKS; i++) {
+            if (entries.contains(names[checks[i]])) {
+                bosses++;
+            }
+        }
+        return bosses;
+    }
+}
@@ -0,0 +1,137 @@
+package app.sedu.mc.parties.boss;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.sedu.mc.parties.config.CommonConfig.CountType;
+import app.sedu.mc.parties.data.PlayerIds;
+import app.sedu.mc.parties.data.SyntheticParties;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.Level;
+
+/**
+ * Boss player counting through {@link PlayerCountService} for every
+ * {@link CountType}: the live counters behind SERVER and DIMENSION, and the
+ * spatial index queries behind RADIUS and PARTY, with a linear scan over
+ * every player to compare RADIUS against.
+ * <p>
+ * Players are spread over a 2048 block square in two dimensions, and
+ * queries are made at random positions in the first.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerCountBenchmark {
+    private static final int QUERIES = 256;
+    private static final int RADIUS = 64;
+    private static final int SPREAD = 2048;
+
+    @Param({"100", "1000"})
+    public int players;
+
+    @Param({"5", "10"})
+    public int partySize;
+
+    private ResourceKey<Level> overworld;
+    private PlayerSpatialIndex index;
+    private PlayerCountService counts;
+    private double[] x;
+    private double[] z;
+    private boolean[] inOverworld;
+    private boolean[] shifted;
+    private double[] qx;
+    private double[] qz;
+
+    /**
+     * The count type, a separate state so only {@link #count(Type)} runs once per type.
+     */
+    @State(Scope.Benchmark)
+    public static class Type {
+        @Param({"SERVER", "DIMENSION", "RADIUS", "PARTY"})
+        public CountType countType;
+    }
+
+    @Setup
+    public void setup() {
+        overworld = ResourceKey.create(Registries.DIMENSION, new ResourceLocation("overworld"));
+        ResourceKey<Level> nether = ResourceKey.create(Registries.DIMENSION, new ResourceLocation("the_nether"));
+        index = new PlayerSpatialIndex(RADIUS);
+        counts = new PlayerCountService(new PlayerIds(), SyntheticParties.build(players, partySize, 0.8), index);
+        Random random = new Random(42);
+        x = new double[players];
+        z = new double[players];
+        inOverworld = new boolean[players];
+        shifted = new boolean[players];
+        for (int id = 0; id < players; id++) {
+            x[id] = random.nextDouble() * SPREAD;
+            z[id] = random.nextDouble() * SPREAD;
+            inOverworld[id] = random.nextInt(4) != 0;
+            index.add(id, inOverworld[id] ? overworld : nether, x[id], 64, z[id]);
+            counts.add(id, inOverworld[id] ? overworld : nether);
+        }
+        qx = new double[QUERIES];
+        qz = new double[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            qx[i] = random.nextDouble() * SPREAD;
+            qz[i] = random.nextDouble() * SPREAD;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public int count(Type type) {
+        int total = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            total += counts.count(type.countType, overworld, qx[i], 64, qz[i], RADIUS);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public int countRadiusLinear() {
+        double radiusSqr = (double) RADIUS * RADIUS;
+        int total = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            for (int id = 0; id < players; id++) {
+                double dx = x[id] - qx[i];
+                double dz = z[id] - qz[i];
+                if (inOverworld[id] && dx * dx + dz * dz <= radiusSqr) {
+                    total++;
+                }
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public int move() {
+        for (int i = 0; i < QUERIES; i++) {
+            int id = i % players;
+            // Alternate between two positions a cell apart so buckets change.
+            shifted[id] = !shifted[id];
+            x[id] += shifted[id] ? RADIUS : -RADIUS;
+            index.move(id, x[id], 64, z[id]);
+        }
+        return index.count(overworld, x[0], 64, z[0], RADIUS);
+    }
+}
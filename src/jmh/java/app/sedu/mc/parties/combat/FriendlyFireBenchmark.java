@@ -0,0 +1,124 @@
+package app.sedu.mc.parties.combat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.sedu.mc.parties.data.PartyIdCache;
+import app.sedu.mc.parties.data.PartyMember;
+import app.sedu.mc.parties.data.PartyRegistry;
+import app.sedu.mc.parties.data.PlayerIds;
+import app.sedu.mc.parties.data.SyntheticParties;
+
+/**
+ * Friendly fire checks as {@link FriendlyFireFilter} makes them: the victim's
+ * party read through {@link PartyIdCache}, compared with the attacker's party
+ * from {@link OwnerResolver}. Attackers are either players or entities owned
+ * by one, whose owner is already cached.
+ * <p>
+ * Members stand in for player entities, carrying the party id the cache
+ * keeps on them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FriendlyFireBenchmark {
+    private static final int ATTACKS = 1024;
+
+    @Param({"100", "1000"})
+    public int players;
+
+    @Param({"5", "10"})
+    public int partySize;
+
+    private PartyMember[] members;
+    private OwnerResolver owners;
+    private int[] victims;
+    private int[] attackers;
+    /** Entity ids of owned attackers, each owned by the player at the same index of {@link #attackers}. */
+    private int[] owned;
+
+    private static final class Member implements PartyMember {
+        private int id;
+        private int party;
+
+        @Override
+        public int parties$getMemberId() {
+            return id;
+        }
+
+        @Override
+        public void parties$setMemberId(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int parties$getPartyId() {
+            return party;
+        }
+
+        @Override
+        public void parties$setPartyId(int party) {
+            this.party = party;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        PartyRegistry registry = SyntheticParties.build(players, partySize, 0.8);
+        members = new PartyMember[players];
+        for (int id = 0; id < players; id++) {
+            members[id] = new Member();
+            members[id].parties$setMemberId(id);
+            members[id].parties$setPartyId(registry.getParty(id));
+        }
+        owners = new OwnerResolver(new PlayerIds(), registry);
+        victims = SyntheticParties.randomIds(players, ATTACKS);
+        attackers = SyntheticParties.randomIds(players, ATTACKS * 2);
+        owned = new int[ATTACKS];
+        for (int i = 0; i < ATTACKS; i++) {
+            owned[i] = 100_000 + i;
+            owners.cacheOwner(owned[i], attackers[ATTACKS + i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ATTACKS)
+    public int playerAttacks() {
+        int cancelled = 0;
+        for (int i = 0; i < ATTACKS; i++) {
+            int party = PartyIdCache.partyOf(members[victims[i]]);
+            if (party != PartyRegistry.NONE && PartyIdCache.partyOf(members[attackers[ATTACKS + i]]) == party) {
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ATTACKS)
+    public int ownedAttacks() {
+        int cancelled = 0;
+        for (int i = 0; i < ATTACKS; i++) {
+            int party = PartyIdCache.partyOf(members[victims[i]]);
+            if (party != PartyRegistry.NONE && owners.partyOf(owned[i]) == party) {
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+}
@@ -0,0 +1,94 @@
+package app.sedu.mc.parties.data;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+/**
+ * Party membership lookups: the registry's array read against a lookup
+ * through UUID maps, which is what a UUID keyed party store would do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PartyLookupBenchmark {
+    private static final int PAIRS = 1024;
+
+    @Param({"100", "1000"})
+    public int players;
+
+    @Param({"5", "10"})
+    public int partySize;
+
+    private PartyRegistry registry;
+    private int[] a;
+    private int[] b;
+    private UUID[] uuids;
+    private Object2IntOpenHashMap<UUID> partyByUuid;
+
+    @Setup
+    public void setup() {
+        registry = SyntheticParties.build(players, partySize, 0.8);
+        a = SyntheticParties.randomIds(players, PAIRS);
+        b = SyntheticParties.randomIds(players, PAIRS * 2);
+        uuids = new UUID[players];
+        partyByUuid = new Object2IntOpenHashMap<>();
+        partyByUuid.defaultReturnValue(PartyRegistry.NONE);
+        for (int id = 0; id < players; id++) {
+            uuids[id] = new UUID(id * 31L, id);
+            partyByUuid.put(uuids[id], registry.getParty(id));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public int getParty() {
+        int sum = 0;
+        for (int i = 0; i < PAIRS; i++) {
+            sum += registry.getParty(a[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public int areMates() {
+        int mates = 0;
+        for (int i = 0; i < PAIRS; i++) {
+            if (registry.areMates(a[i], b[i + PAIRS])) {
+                mates++;
+            }
+        }
+        return mates;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public int areMatesByUuid() {
+        int mates = 0;
+        for (int i = 0; i < PAIRS; i++) {
+            int party = partyByUuid.getInt(uuids[a[i]]);
+            if (party != PartyRegistry.NONE && party == partyByUuid.getInt(uuids[b[i + PAIRS]])) {
+                mates++;
+            }
+        }
+        return mates;
+    }
+}
@@ -0,0 +1,43 @@
+package app.sedu.mc.parties.data;
+
+import java.util.Random;
+
+/**
+ * Builds a registry of synthetic players without a server: every player is
+ * an id, and players fill parties of the configured size in id order, with
+ * the last party possibly smaller.
+ */
+public final class SyntheticParties {
+    private SyntheticParties() {}
+
+    /**
+     * @param players  the number of players
+     * @param partySize  the maximum party size
+     * @param partied  the fraction of players in a party, from 0 to 1
+     */
+    public static PartyRegistry build(int players, int partySize, double partied) {
+        PartyRegistry registry = new PartyRegistry(() -> partySize);
+        int inParties = (int) (players * partied);
+        int party = PartyRegistry.NONE;
+        for (int id = 0; id < inParties; id++) {
+            if (id % partySize == 0) {
+                party = registry.create(id);
+            } else {
+                registry.join(party, id);
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * @return {@code count} random player ids below {@code players}, from a fixed seed.
+     */
+    public static int[] randomIds(int players, int count) {
+        Random random = new Random(42);
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = random.nextInt(players);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,66 @@
+package app.sedu.mc.parties.sync;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.network.FriendlyByteBuf;
+
+/**
+ * Encoding one tick of member deltas into a reused buffer, with a third of
+ * the members also carrying an effect change.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeltaEncodeBenchmark {
+    private static final int STATS = MemberStat.COUNT;
+
+    @Param({"100", "1000"})
+    public int players;
+
+    private final FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer(64 * 1024));
+    private final IntArrayList noEffects = new IntArrayList();
+    private final IntArrayList effects = IntArrayList.of(1, 0, 600);
+    private float[] values;
+    private int[] masks;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        values = new float[players * STATS];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(40);
+        }
+        masks = new int[players];
+        for (int id = 0; id < players; id++) {
+            masks[id] = random.nextInt(MemberStat.ALL_MASK) + 1;
+        }
+    }
+
+    @Benchmark
+    public int writeDelta() {
+        buf.clear();
+        MemberSyncCodec.writeHeader(buf, false, players);
+        for (int id = 0; id < players; id++) {
+            MemberSyncCodec.writeDelta(buf, id, masks[id], values, id * STATS, id % 3 == 0 ? effects : noEffects);
+        }
+        return buf.writerIndex();
+    }
+}
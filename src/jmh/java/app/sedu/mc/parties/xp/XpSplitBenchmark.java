@@ -0,0 +1,61 @@
+package app.sedu.mc.parties.xp;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.sedu.mc.parties.data.PartyRegistry;
+import app.sedu.mc.parties.data.SyntheticParties;
+
+/**
+ * Experience splitting for a batch of gains, each split between the
+ * gainer's whole party.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XpSplitBenchmark {
+    private static final int GAINS = 1024;
+
+    @Param({"100", "1000"})
+    public int players;
+
+    @Param({"5", "10"})
+    public int partySize;
+
+    private PartyRegistry registry;
+    private int[] gainers;
+    private int[] payout;
+
+    @Setup
+    public void setup() {
+        registry = SyntheticParties.build(players, partySize, 1.0);
+        gainers = SyntheticParties.randomIds(players, GAINS);
+        payout = new int[players];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GAINS)
+    public int split() {
+        for (int i = 0; i < GAINS; i++) {
+            int gainer = gainers[i];
+            int party = registry.getParty(gainer);
+            XpShareStage.split(7 + i % 13, gainer, registry.getMembers(party), registry.getSize(party), payout);
+        }
+        return payout[gainers[0]];
+    }
+}
@@ -2,15 +2,42 @@ package app.sedu.mc.parties;
 
 import com.mojang.logging.LogUtils;
 
+import app.sedu.mc.parties.boss.BossModule;
+import app.sedu.mc.parties.boss.PlayerCountService;
+import app.sedu.mc.parties.boss.PlayerSpatialIndex;
+import app.sedu.mc.parties.client.PartyHud;
+import app.sedu.mc.parties.combat.FriendlyFireFilter;
+import app.sedu.mc.parties.combat.OwnerResolver;
+import app.sedu.mc.parties.command.PartyCommand;
+import app.sedu.mc.parties.compat.FTBTeams;
+import app.sedu.mc.parties.compat.FTBTeamsMirror;
 import app.sedu.mc.parties.config.ClientConfig;
+import app.sedu.mc.parties.config.ClientSnapshot;
 import app.sedu.mc.parties.config.CommonConfig;
+import app.sedu.mc.parties.config.CommonSnapshot;
+import app.sedu.mc.parties.data.PartyIdCache;
+import app.sedu.mc.parties.data.PartyInvites;
+import app.sedu.mc.parties.data.PartyRegistry;
+import app.sedu.mc.parties.data.PartySnapshotPublisher;
+import app.sedu.mc.parties.data.PartyStore;
+import app.sedu.mc.parties.data.PlayerIds;
+import app.sedu.mc.parties.network.PartiesNetwork;
+import app.sedu.mc.parties.profile.PartyProfiler;
+import app.sedu.mc.parties.relay.ModPayloadRelay;
+import app.sedu.mc.parties.sync.PartyAudience;
+import app.sedu.mc.parties.sync.PartySyncEngine;
+import app.sedu.mc.parties.team.VanillaTeamSync;
+import app.sedu.mc.parties.xp.XpShareStage;
 import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.client.event.RegisterGuiOverlaysEvent;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.server.ServerStartingEvent;
+import net.minecraftforge.event.server.ServerStoppedEvent;
 import net.minecraftforge.eventbus.api.IEventBus;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.config.ModConfig;
+import net.minecraftforge.fml.event.config.ModConfigEvent;
 import net.minecraftforge.fml.event.lifecycle.FMLClientSetupEvent;
 import net.minecraftforge.fml.event.lifecycle.FMLCommonSetupEvent;
 import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
@@ -25,6 +52,24 @@ public class Parties
     // Directly reference a slf4j logger
     private static final Logger LOGGER = LogUtils.getLogger();
 
+    // Server-side party systems, alive between server start and stop
+    private static PlayerIds playerIds;
+    private static PartyRegistry registry;
+    private static PartyInvites invites;
+    private static PartySyncEngine syncEngine;
+    private static XpShareStage xpShare;
+    private static PlayerSpatialIndex spatialIndex;
+    private static PlayerCountService playerCounts;
+    private static BossModule bossModule;
+    private static PartyStore store;
+    private static ModPayloadRelay modRelay;
+    private static PartySnapshotPublisher snapshots;
+    private static VanillaTeamSync teamSync;
+    private static PartyIdCache partyIds;
+    private static OwnerResolver owners;
+    private static FriendlyFireFilter friendlyFire;
+    private static FTBTeamsMirror ftbTeams;
+
     /**
      * Logs an informational message with optional formatting arguments.
      *
@@ -86,15 +131,193 @@ public class Parties
 
     private void commonSetup(final FMLCommonSetupEvent event)
     {
-        // Some common setup code
+        event.enqueueWork(PartiesNetwork::register);
+    }
+
+    /**
+     * Retrieves the compact player ids of the running server.
+     *
+     * @return the player ids, or null if no server is running.
+     */
+    public static PlayerIds getPlayerIds() {
+        return playerIds;
+    }
+
+    /**
+     * Retrieves the party registry of the running server.
+     *
+     * @return the party registry, or null if no server is running.
+     */
+    public static PartyRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Retrieves the pending party invites of the running server.
+     *
+     * @return the party invites, or null if no server is running.
+     */
+    public static PartyInvites getInvites() {
+        return invites;
+    }
+
+    /**
+     * Retrieves the member sync engine of the running server.
+     *
+     * @return the sync engine, or null if no server is running.
+     */
+    public static PartySyncEngine getSyncEngine() {
+        return syncEngine;
     }
 
 
+    /**
+     * Retrieves the experience share stage of the running server.
+     *
+     * @return the experience share stage, or null if no server is running.
+     */
+    public static XpShareStage getXpShare() {
+        return xpShare;
+    }
+
+    /**
+     * Retrieves the boss player count service of the running server.
+     *
+     * @return the player count service, or null if no server is running.
+     */
+    public static PlayerCountService getPlayerCounts() {
+        return playerCounts;
+    }
+
+    /**
+     * Retrieves the boss module of the running server.
+     *
+     * @return the boss module, or null if no server is running.
+     */
+    public static BossModule getBossModule() {
+        return bossModule;
+    }
+
+    /**
+     * Retrieves the relay that forwards other mods' member states to party mates.
+     *
+     * @return the mod payload relay, or null if no server is running.
+     */
+    public static ModPayloadRelay getModRelay() {
+        return modRelay;
+    }
+
     // You can use SubscribeEvent and let the Event Bus discover methods to call
     @SubscribeEvent
     public void onServerStarting(ServerStartingEvent event)
     {
-        // Do something when the server starts
+        PartyProfiler.open(event.getServer());
+        playerIds = new PlayerIds();
+        boolean useFTBTeams = FTBTeams.isEnabled();
+        if (CommonConfig.INSTANCE.getUseFTBTeams() && !useFTBTeams) {
+            warn("useFTBTeams is set but FTB Teams is not installed, using the mod's own parties");
+        }
+        // FTB Teams decides party sizes, the mirror must accept any team.
+        registry = new PartyRegistry(useFTBTeams ? () -> Integer.MAX_VALUE : () -> CommonSnapshot.get().partySize);
+        invites = new PartyInvites(event.getServer(), PartyCommand::onInviteExpired);
+        syncEngine = new PartySyncEngine(event.getServer(), playerIds);
+
+        PartyAudience audience = new PartyAudience(registry, syncEngine);
+        syncEngine.setAudience(audience);
+        registry.addListener(audience);
+        xpShare = new XpShareStage(event.getServer(), playerIds, registry);
+        spatialIndex = new PlayerSpatialIndex(CommonConfig.INSTANCE.getPlayerCountRadius());
+        playerCounts = new PlayerCountService(playerIds, registry, spatialIndex);
+        registry.addListener(playerCounts);
+        bossModule = new BossModule(playerCounts);
+        modRelay = new ModPayloadRelay(event.getServer(), playerIds, registry);
+        registry.addListener(modRelay);
+        snapshots = new PartySnapshotPublisher(playerIds, registry);
+        registry.addListener(snapshots);
+        teamSync = new VanillaTeamSync(event.getServer(), playerIds, registry);
+        registry.addListener(teamSync);
+        partyIds = new PartyIdCache(playerIds, registry);
+        registry.addListener(partyIds);
+        owners = new OwnerResolver(playerIds, registry);
+        friendlyFire = new FriendlyFireFilter(owners);
+
+        // Loaded last so every other listener sees the restored parties
+        if (useFTBTeams) {
+            // FTB Teams stores its own teams, parties are rebuilt from them on every start.
+            ftbTeams = new FTBTeamsMirror(playerIds, registry);
+            ftbTeams.open();
+        } else {
+            store = new PartyStore(event.getServer(), playerIds, registry);
+            store.load();
+            registry.addListener(store);
+        }
+
+        MinecraftForge.EVENT_BUS.register(PartyProfiler.class);
+        MinecraftForge.EVENT_BUS.register(playerIds);
+        MinecraftForge.EVENT_BUS.register(invites);
+        MinecraftForge.EVENT_BUS.register(syncEngine);
+        MinecraftForge.EVENT_BUS.register(xpShare);
+        MinecraftForge.EVENT_BUS.register(spatialIndex);
+        MinecraftForge.EVENT_BUS.register(playerCounts);
+        MinecraftForge.EVENT_BUS.register(bossModule);
+        MinecraftForge.EVENT_BUS.register(modRelay);
+        MinecraftForge.EVENT_BUS.register(snapshots);
+        MinecraftForge.EVENT_BUS.register(teamSync);
+        MinecraftForge.EVENT_BUS.register(partyIds);
+        MinecraftForge.EVENT_BUS.register(owners);
+        MinecraftForge.EVENT_BUS.register(friendlyFire);
+        if (store != null) {
+            MinecraftForge.EVENT_BUS.register(store);
+        }
+        if (ftbTeams != null) {
+            MinecraftForge.EVENT_BUS.register(ftbTeams);
+        }
+    }
+
+    @SubscribeEvent
+    public void onServerStopped(ServerStoppedEvent event)
+    {
+        if (ftbTeams != null) {
+            MinecraftForge.EVENT_BUS.unregister(ftbTeams);
+            ftbTeams.close();
+        }
+        if (store != null) {
+            MinecraftForge.EVENT_BUS.unregister(store);
+            store.close();
+        }
+        MinecraftForge.EVENT_BUS.unregister(friendlyFire);
+        MinecraftForge.EVENT_BUS.unregister(owners);
+        MinecraftForge.EVENT_BUS.unregister(partyIds);
+        MinecraftForge.EVENT_BUS.unregister(teamSync);
+        MinecraftForge.EVENT_BUS.unregister(snapshots);
+        snapshots.close();
+        MinecraftForge.EVENT_BUS.unregister(modRelay);
+        MinecraftForge.EVENT_BUS.unregister(bossModule);
+        MinecraftForge.EVENT_BUS.unregister(playerCounts);
+        MinecraftForge.EVENT_BUS.unregister(spatialIndex);
+        MinecraftForge.EVENT_BUS.unregister(xpShare);
+        MinecraftForge.EVENT_BUS.unregister(syncEngine);
+        MinecraftForge.EVENT_BUS.unregister(invites);
+        MinecraftForge.EVENT_BUS.unregister(playerIds);
+        MinecraftForge.EVENT_BUS.unregister(PartyProfiler.class);
+        PartyProfiler.close();
+
+        store = null;
+        ftbTeams = null;
+        modRelay = null;
+        snapshots = null;
+        teamSync = null;
+        partyIds = null;
+        owners = null;
+        friendlyFire = null;
+        bossModule = null;
+        playerCounts = null;
+        spatialIndex = null;
+        xpShare = null;
+        syncEngine = null;
+        invites = null;
+        registry = null;
+        playerIds = null;
     }
 
 
@@ -108,5 +331,28 @@ public class Parties
         {
             // Some client setup code
         }
+
+        @SubscribeEvent
+        public static void onRegisterGuiOverlays(RegisterGuiOverlaysEvent event)
+        {
+            event.registerAboveAll("party_frames", PartyHud.INSTANCE);
+        }
+
+        @SubscribeEvent
+        public static void onConfigLoading(ModConfigEvent.Loading event)
+        {
+            if (event.getConfig().getType() == ModConfig.Type.CLIENT && event.getConfig().getModId().equals(MODID)) {
+                ClientSnapshot.rebuild();
+            }
+        }
+
+        @SubscribeEvent
+        public static void onConfigReloading(ModConfigEvent.Reloading event)
+        {
+            if (event.getConfig().getType() == ModConfig.Type.CLIENT && event.getConfig().getModId().equals(MODID)) {
+                ClientSnapshot.rebuild();
+                PartyHud.INSTANCE.invalidate();
+            }
+        }
     }
 }
@@ -0,0 +1,149 @@
+package app.sedu.mc.parties.boss;
+
+import app.sedu.mc.parties.Parties;
+import app.sedu.mc.parties.config.CommonSnapshot;
+import app.sedu.mc.parties.profile.PartyProfiler;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraftforge.event.TagsUpdatedEvent;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.EntityJoinLevelEvent;
+import net.minecraftforge.event.entity.EntityLeaveLevelEvent;
+import net.minecraftforge.event.entity.living.LivingDropsEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+/**
+ * Entry point of the boss module. Recognizes marked bosses as they join a
+ * level, records the player count they were spawned for and scales them
+ * for it once. Their drops are multiplied by the same count.
+ * <p>
+ * Scaling is stored in the boss's attributes and persistent data, so bosses
+ * loaded from disk keep it without being scaled again. When
+ * {@code rescaleInterval} is set, loaded bosses are also checked every
+ * second and rescaled if their player count changed, at most once per
+ * interval per boss.
+ */
+public class BossModule {
+    /** Persistent data key holding the player count a boss was spawned for. */
+    public static final String PLAYER_COUNT = Parties.MODID + ":player_count";
+
+    private final BossTypeMatcher matcher = new BossTypeMatcher();
+    private final PlayerCountService counts;
+    private final BossScaler scaler = new BossScaler();
+    private final LootScaler loot = new LootScaler();
+    private final Reference2IntOpenHashMap<LivingEntity> loaded = new Reference2IntOpenHashMap<>();
+    private int tick;
+
+    public BossModule(PlayerCountService counts) {
+        this.counts = counts;
+        resolve();
+    }
+
+    public BossTypeMatcher getMatcher() {
+        return matcher;
+    }
+
+    public BossScaler getScaler() {
+        return scaler;
+    }
+
+    /**
+     * Checks whether a dying entity's loot will be scaled, so its loot table
+     * roll needs to be recorded.
+     *
+     * @param entity  the dying entity
+     * @return true if the entity is a boss scaled for more than one player, false otherwise.
+     */
+    public boolean scalesLoot(LivingEntity entity) {
+        CommonSnapshot config = CommonSnapshot.get();
+        return config.bossModule && config.scaleLoot && matcher.isBoss(entity.getType())
+            && entity.getPersistentData().getInt(PLAYER_COUNT) > 1;
+    }
+
+    private void resolve() {
+        int count = matcher.resolve(CommonSnapshot.get().markBosses);
+        Parties.info("Marked {} entity types as bosses", count);
+    }
+
+    @SubscribeEvent
+    public void onTagsUpdated(TagsUpdatedEvent event) {
+        if (event.getUpdateCause() == TagsUpdatedEvent.UpdateCause.SERVER_DATA_LOAD) {
+            resolve();
+        }
+    }
+
+    @SubscribeEvent
+    public void onEntityJoinLevel(EntityJoinLevelEvent event) {
+        Entity entity = event.getEntity();
+        if (event.getLevel().isClientSide() || !(entity instanceof LivingEntity boss)
+                || !CommonSnapshot.get().bossModule || !matcher.isBoss(entity.getType())) {
+            return;
+        }
+        CompoundTag data = entity.getPersistentData();
+        if (!data.contains(PLAYER_COUNT)) {
+            long start = PartyProfiler.begin();
+            int count = counts.count(entity);
+            data.putInt(PLAYER_COUNT, count);
+            scaler.apply(boss, count);
+            PartyProfiler.count(PartyProfiler.Counter.BOSS_SCALES, 1);
+            PartyProfiler.end(PartyProfiler.Section.BOSS, start);
+        }
+        loaded.put(boss, tick);
+    }
+
+    @SubscribeEvent
+    public void onEntityLeaveLevel(EntityLeaveLevelEvent event) {
+        if (event.getEntity() instanceof LivingEntity boss && !event.getLevel().isClientSide()) {
+            loaded.removeInt(boss);
+        }
+    }
+
+    @SubscribeEvent(priority = EventPriority.LOW)
+    public void onLivingDrops(LivingDropsEvent event) {
+        LivingEntity boss = event.getEntity();
+        if (boss.level().isClientSide() || !CommonSnapshot.get().bossModule || !CommonSnapshot.get().scaleLoot
+                || !matcher.isBoss(boss.getType())) {
+            return;
+        }
+        int count = boss.getPersistentData().getInt(PLAYER_COUNT);
+        if (count > 1) {
+            long start = PartyProfiler.begin();
+            loot.scale(boss, event.getDrops(), count);
+            PartyProfiler.end(PartyProfiler.Section.BOSS, start);
+        }
+    }
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || ++tick % 20 != 0 || loaded.isEmpty()) {
+            return;
+        }
+        int interval = CommonSnapshot.get().rescaleInterval * 20;
+        if (interval == 0) {
+            return;
+        }
+        long start = PartyProfiler.begin();
+        for (Reference2IntMap.Entry<LivingEntity> entry : loaded.reference2IntEntrySet()) {
+            if (tick - entry.getIntValue() < interval) {
+                continue;
+            }
+            LivingEntity boss = entry.getKey();
+            if (!boss.isAlive()) {
+                continue;
+            }
+            int count = counts.count(boss);
+            CompoundTag data = boss.getPersistentData();
+            if (data.getInt(PLAYER_COUNT) != count) {
+                data.putInt(PLAYER_COUNT, count);
+                scaler.apply(boss, count);
+                PartyProfiler.count(PartyProfiler.Counter.BOSS_SCALES, 1);
+                entry.setValue(tick);
+            }
+        }
+        PartyProfiler.end(PartyProfiler.Section.BOSS, start);
+    }
+}
@@ -0,0 +1,108 @@
+package app.sedu.mc.parties.boss;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import app.sedu.mc.parties.Parties;
+import app.sedu.mc.parties.config.CommonSnapshot;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.ai.attributes.Attribute;
+import net.minecraft.world.entity.ai.attributes.AttributeInstance;
+import net.minecraft.world.entity.ai.attributes.AttributeModifier;
+import net.minecraft.world.entity.ai.attributes.Attributes;
+
+/**
+ * Scales boss attributes by player count through attribute modifiers.
+ * <p>
+ * Each scaled attribute uses one fixed modifier UUID, so a boss never holds
+ * more than one modifier per attribute and rescaling simply replaces it.
+ * Modifiers are immutable and shared: one instance exists per attribute and
+ * player count, created the first time that count is seen and dropped when
+ * the configured modifier changes.
+ */
+public class BossScaler {
+
+    /**
+     * The attributes the scaler modifies.
+     */
+    public enum Type {
+        HEALTH(Attributes.MAX_HEALTH, "e4bd8d2e-8a47-4a8c-9c3e-4c1a5f0b2d71"),
+        DAMAGE(Attributes.ATTACK_DAMAGE, "2b7f6a19-3d5e-4f08-b1c4-9e8a7d6c5b43");
+
+        private final Attribute attribute;
+        private final UUID uuid;
+        private final String name;
+
+        Type(Attribute attribute, String uuid) {
+            this.attribute = attribute;
+            this.uuid = UUID.fromString(uuid);
+            this.name = Parties.MODID + ":boss_" + name().toLowerCase();
+        }
+
+        private double mod(CommonSnapshot config) {
+            return this == HEALTH ? config.healthMod : config.damageMod;
+        }
+    }
+
+    private static final Type[] TYPES = Type.values();
+
+    private final AttributeModifier[][] cache = new AttributeModifier[TYPES.length][16];
+    private final double[] cachedMod = new double[TYPES.length];
+
+    /**
+     * Retrieves the modifier for an attribute and player count.
+     *
+     * @param type  the attribute to scale
+     * @param count  the player count, at least 1
+     * @param mod  the configured modifier per player
+     * @return the shared modifier, adding {@code mod * count} times the base value.
+     */
+    public AttributeModifier getModifier(Type type, int count, double mod) {
+        int index = type.ordinal();
+        if (cachedMod[index] != mod) {
+            Arrays.fill(cache[index], null);
+            cachedMod[index] = mod;
+        }
+        if (count >= cache[index].length) {
+            cache[index] = Arrays.copyOf(cache[index], Math.max(cache[index].length * 2, count + 1));
+        }
+        AttributeModifier modifier = cache[index][count];
+        if (modifier == null) {
+            modifier = new AttributeModifier(type.uuid, type.name, mod * count, AttributeModifier.Operation.MULTIPLY_BASE);
+            cache[index][count] = modifier;
+        }
+        return modifier;
+    }
+
+    /**
+     * Applies the scaling for a player count, replacing any earlier scaling.
+     * The boss keeps the fraction of health it had.
+     *
+     * @param boss  the boss to scale
+     * @param count  the player count, at least 1
+     */
+    public void apply(LivingEntity boss, int count) {
+        CommonSnapshot config = CommonSnapshot.get();
+        float health = boss.getMaxHealth() > 0 ? boss.getHealth() / boss.getMaxHealth() : 1f;
+        for (Type type : TYPES) {
+            // Not every boss has every attribute, the ender dragon has no attack damage.
+            AttributeInstance instance = boss.getAttribute(type.attribute);
+            if (instance == null) {
+                continue;
+            }
+            double mod = type.mod(config);
+            AttributeModifier current = instance.getModifier(type.uuid);
+            AttributeModifier wanted = mod > 0 ? getModifier(type, count, mod) : null;
+            if (current == wanted || current != null && wanted != null && current.getAmount() == wanted.getAmount()) {
+                continue;
+            }
+            if (current != null) {
+                instance.removeModifier(type.uuid);
+            }
+            if (wanted != null) {
+                instance.addPermanentModifier(wanted);
+            }
+        }
+        boss.setHealth(boss.getMaxHealth() * health);
+    }
+}
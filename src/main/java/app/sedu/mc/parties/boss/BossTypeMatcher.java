@@ -0,0 +1,86 @@
+package app.sedu.mc.parties.boss;
+
+import java.util.List;
+
+import app.sedu.mc.parties.Parties;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ReferenceSet;
+import net.minecraft.core.Holder;
+import net.minecraft.core.Registry;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.tags.TagKey;
+import net.minecraft.world.entity.EntityType;
+
+/**
+ * Resolves the {@code markBosses} list into the set of boss entity types.
+ * <p>
+ * Entries can be an entity id ({@code minecraft:wither}), an entity type tag
+ * ({@code #modpack:bosses}) or every entity of a namespace ({@code cataclysm:*}).
+ * The list is resolved once when the server starts and again whenever tags
+ * reload, so checking an entity is a single identity hash lookup of its type.
+ */
+public class BossTypeMatcher {
+    private ReferenceSet<EntityType<?>> bosses = new ReferenceOpenHashSet<>();
+
+    /**
+     * Resolves a list of boss entries against the entity type registry and
+     * its currently loaded tags.
+     *
+     * @param entries  the configured entries
+     * @return the number of entity types marked as bosses.
+     */
+    public int resolve(List<? extends String> entries) {
+        Registry<EntityType<?>> types = BuiltInRegistries.ENTITY_TYPE;
+        ReferenceSet<EntityType<?>> resolved = new ReferenceOpenHashSet<>();
+        for (String entry : entries) {
+            if (entry.startsWith("#")) {
+                ResourceLocation id = ResourceLocation.tryParse(entry.substring(1));
+                if (id == null) {
+                    Parties.warn("Ignoring invalid boss tag '{}'", entry);
+                    continue;
+                }
+                for (Holder<EntityType<?>> holder : types.getTagOrEmpty(TagKey.create(Registries.ENTITY_TYPE, id))) {
+                    resolved.add(holder.value());
+                }
+            } else if (entry.endsWith(":*")) {
+                String namespace = entry.substring(0, entry.length() - 2);
+                for (EntityType<?> type : types) {
+                    if (types.getKey(type).getNamespace().equals(namespace)) {
+                        resolved.add(type);
+                    }
+                }
+            } else {
+                ResourceLocation id = ResourceLocation.tryParse(entry);
+                if (id == null || !types.containsKey(id)) {
+                    Parties.warn("Ignoring unknown boss entity '{}'", entry);
+                    continue;
+                }
+                resolved.add(types.get(id));
+            }
+        }
+
+        return set(resolved);
+    }
+
+    /**
+     * Replaces the boss entity types.
+     *
+     * @return the number of entity types marked as bosses.
+     */
+    int set(ReferenceSet<EntityType<?>> resolved) {
+        bosses = resolved;
+        return resolved.size();
+    }
+
+    /**
+     * Checks whether an entity type is marked as a boss.
+     *
+     * @param type  the entity type
+     * @return true if the type is a boss, false otherwise.
+     */
+    public boolean isBoss(EntityType<?> type) {
+        return bosses.contains(type);
+    }
+}
@@ -0,0 +1,13 @@
+package app.sedu.mc.parties.boss;
+
+/**
+ * Implemented on {@link net.minecraft.world.entity.LivingEntity} by mixin so
+ * a dying boss remembers its loot table roll. Equipment and picked up items
+ * are dropped alongside the table's drops and must never be multiplied.
+ */
+public interface CapturedLoot {
+    /**
+     * @return the loot table roll recorded when the entity died, or null if it was not recorded.
+     */
+    LootRoll parties$getLootRoll();
+}
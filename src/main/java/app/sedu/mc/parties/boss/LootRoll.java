@@ -0,0 +1,106 @@
+package app.sedu.mc.parties.boss;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import net.minecraft.world.entity.item.ItemEntity;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.storage.loot.LootContext;
+import net.minecraft.world.level.storage.loot.LootPool;
+
+/**
+ * The loot table roll of a dying boss whose drops will be scaled, recorded
+ * by mixin while the table is rolled.
+ * <p>
+ * Holds the captured drops the table produced, and the loot pools that
+ * produced special items together with the context they were rolled in.
+ * Rolling just those pools again gives every extra player special items
+ * of their own, without rolling the rest of the table.
+ */
+public final class LootRoll {
+    /** The roll in progress, only set on the server thread while a boss rolls its loot table. */
+    private static LootRoll active;
+
+    private final List<LootPool> pools = new ArrayList<>(2);
+    private final List<LootContext> contexts = new ArrayList<>(2);
+    private List<ItemEntity> drops = List.of();
+    /** The last special item recorded, so pools of a nested table and the pool referencing it count it once. */
+    private ItemStack claimed;
+
+    private LootRoll() {}
+
+    /**
+     * Starts recording a loot table roll.
+     *
+     * @return the new roll.
+     */
+    public static LootRoll begin() {
+        active = new LootRoll();
+        return active;
+    }
+
+    /**
+     * @return the roll being recorded, or null if no boss is rolling its loot table.
+     */
+    public static LootRoll active() {
+        return active;
+    }
+
+    /**
+     * Stops recording.
+     *
+     * @param produced  the drops the loot table produced, in spawn order
+     */
+    public void end(Collection<ItemEntity> produced) {
+        drops = new ArrayList<>(produced);
+        claimed = null;
+        if (active == this) {
+            active = null;
+        }
+    }
+
+    /**
+     * Wraps the output of a loot pool being rolled, so the pool is recorded
+     * if it produces a special item.
+     *
+     * @param pool  the pool being rolled
+     * @param context  the context it is rolled in
+     * @param output  where the pool's items go
+     * @return the output to roll the pool into.
+     */
+    public Consumer<ItemStack> watch(LootPool pool, LootContext context, Consumer<ItemStack> output) {
+        return stack -> {
+            if (stack != claimed && LootScaler.isSpecial(stack)) {
+                claimed = stack;
+                if (!pools.contains(pool)) {
+                    pools.add(pool);
+                    contexts.add(context);
+                }
+            }
+            output.accept(stack);
+        };
+    }
+
+    /**
+     * @return the drops the loot table produced.
+     */
+    List<ItemEntity> getDrops() {
+        return drops;
+    }
+
+    /**
+     * Rolls the pools that produced special items again.
+     *
+     * @param times  how many times to roll each pool
+     * @param output  receives every item rolled
+     */
+    void reroll(int times, Consumer<ItemStack> output) {
+        for (int i = 0, n = pools.size(); i < n; i++) {
+            for (int j = 0; j < times; j++) {
+                pools.get(i).addRandomItems(output, contexts.get(i));
+            }
+        }
+    }
+}
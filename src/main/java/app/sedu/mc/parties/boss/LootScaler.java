@@ -0,0 +1,117 @@
+package app.sedu.mc.parties.boss;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import app.sedu.mc.parties.config.CommonSnapshot;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.item.ItemEntity;
+import net.minecraft.world.item.ItemStack;
+
+/**
+ * Multiplies boss drops by player count without rolling the loot table once
+ * per player.
+ * <p>
+ * Only the drops the boss's loot table produced are scaled, as recorded in
+ * its {@link LootRoll}; equipment and items the boss picked up drop once,
+ * as they would without scaling. The loot drops of the single vanilla roll
+ * are merged by item and tags, their counts multiplied, and respawned as a
+ * few full stacks. Special items (Apotheosis affix items) cannot be merged.
+ * With {@code scaleSpecialLoot} on, the loot pools that produced them are
+ * rolled again once per extra player, so each player's items get their own
+ * affixes. Special items added outside the table's pools, such as by global
+ * loot modifiers, drop once.
+ * <p>
+ * Scaled drops spawn at the boss like any other drop, free for whoever
+ * picks them up.
+ */
+public class LootScaler {
+    /** Tag Apotheosis stores an item's affixes under. */
+    private static final String AFFIX_DATA = "affix_data";
+
+    private final List<ItemStack> plain = new ArrayList<>();
+    private final List<ItemStack> special = new ArrayList<>();
+
+    /**
+     * Replaces a boss's loot table drops with drops scaled for a player count.
+     *
+     * @param boss  the boss that died
+     * @param drops  the drops about to spawn, modified in place
+     * @param count  the player count the boss was scaled for
+     */
+    public void scale(LivingEntity boss, Collection<ItemEntity> drops, int count) {
+        LootRoll roll = ((CapturedLoot) boss).parties$getLootRoll();
+        if (roll == null || roll.getDrops().isEmpty()) {
+            return;
+        }
+        plain.clear();
+        special.clear();
+        for (ItemEntity drop : roll.getDrops()) {
+            // Earlier listeners may have removed some of them already.
+            if (drops.remove(drop)) {
+                add(drop.getItem());
+            }
+        }
+        for (ItemStack stack : plain) {
+            stack.setCount(stack.getCount() * count);
+        }
+        if (CommonSnapshot.get().scaleSpecialLoot) {
+            roll.reroll(count - 1, this::addRerolled);
+        }
+
+        ServerLevel level = (ServerLevel) boss.level();
+        for (ItemStack stack : plain) {
+            // Counts can exceed what one entity should hold, split into full stacks.
+            int remaining = stack.getCount();
+            while (remaining > 0) {
+                int size = Math.min(remaining, stack.getMaxStackSize());
+                drops.add(spawn(level, boss, stack.copyWithCount(size)));
+                remaining -= size;
+            }
+        }
+        for (ItemStack stack : special) {
+            drops.add(spawn(level, boss, stack));
+        }
+        plain.clear();
+        special.clear();
+    }
+
+    private void add(ItemStack stack) {
+        if (stack.isEmpty()) {
+            return;
+        }
+        if (isSpecial(stack)) {
+            special.add(stack);
+            return;
+        }
+        for (ItemStack merged : plain) {
+            if (ItemStack.isSameItemSameTags(merged, stack)) {
+                merged.grow(stack.getCount());
+                return;
+            }
+        }
+        plain.add(stack.copy());
+    }
+
+    /**
+     * Keeps the special items of a pool rolled again, the rest of the pool
+     * is already covered by the multiplied counts.
+     */
+    private void addRerolled(ItemStack stack) {
+        if (!stack.isEmpty() && isSpecial(stack)) {
+            special.add(stack);
+        }
+    }
+
+    static boolean isSpecial(ItemStack stack) {
+        return stack.hasTag() && stack.getTag().contains(AFFIX_DATA);
+    }
+
+    private static ItemEntity spawn(ServerLevel level, LivingEntity boss, ItemStack stack) {
+        ItemEntity entity = new ItemEntity(level, boss.getX(), boss.getY(), boss.getZ(), stack);
+        entity.setDefaultPickUpDelay();
+        return entity;
+    }
+}
@@ -0,0 +1,225 @@
+package app.sedu.mc.parties.boss;
+
+import java.util.Arrays;
+
+import app.sedu.mc.parties.config.CommonConfig.CountType;
+import app.sedu.mc.parties.config.CommonSnapshot;
+import app.sedu.mc.parties.data.PartyRegistry;
+import app.sedu.mc.parties.data.PlayerIds;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.level.Level;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+/**
+ * Counts the players a boss is scaled for, according to the configured
+ * {@link CountType}.
+ * <p>
+ * Server, dimension and party counts are live counters, kept up to date
+ * from login, logout, dimension change and party membership events, so
+ * reading them at spawn time is constant time. Radius counts and the
+ * nearest player used for party counts come from the {@link PlayerSpatialIndex},
+ * so spectators are not counted by radius and never pick the party.
+ */
+public class PlayerCountService implements PartyRegistry.Listener {
+    private final PlayerIds ids;
+    private final PartyRegistry registry;
+    private final PlayerSpatialIndex index;
+
+    private int online;
+    private final Reference2IntOpenHashMap<ResourceKey<Level>> perDimension = new Reference2IntOpenHashMap<>();
+    private int[] perParty = new int[16];
+    @SuppressWarnings("unchecked")
+    private ResourceKey<Level>[] dimensionOf = new ResourceKey[64];
+    private CommonSnapshot applied;
+
+    public PlayerCountService(PlayerIds ids, PartyRegistry registry, PlayerSpatialIndex index) {
+        this.ids = ids;
+        this.registry = registry;
+        this.index = index;
+    }
+
+    /**
+     * Counts the players relevant to an entity using the configured count type.
+     *
+     * @param entity  the boss being scaled
+     * @return the player count, at least 1.
+     */
+    public int count(Entity entity) {
+        CommonSnapshot config = CommonSnapshot.get();
+        return Math.max(1, count(config.playerCountType, entity, config.playerCountRadius));
+    }
+
+    /**
+     * Counts the players relevant to an entity.
+     *
+     * @param type  how to count players
+     * @param entity  the boss being scaled
+     * @param radius  the radius used by {@link CountType#RADIUS}
+     * @return the player count.
+     */
+    public int count(CountType type, Entity entity, int radius) {
+        return count(type, entity.level().dimension(), entity.getX(), entity.getY(), entity.getZ(), radius);
+    }
+
+    /**
+     * Counts the players relevant to a position.
+     *
+     * @param type  how to count players
+     * @param dimension  the dimension of the position
+     * @param radius  the radius used by {@link CountType#RADIUS}
+     * @return the player count.
+     */
+    public int count(CountType type, ResourceKey<Level> dimension, double px, double py, double pz, int radius) {
+        return switch (type) {
+            case SERVER -> online;
+            case DIMENSION -> perDimension.getInt(dimension);
+            case RADIUS -> index.count(dimension, px, py, pz, radius);
+            case PARTY -> countParty(index.nearest(dimension, px, py, pz));
+        };
+    }
+
+    /**
+     * @return the number of online players.
+     */
+    public int getOnline() {
+        return online;
+    }
+
+    /**
+     * @param dimension  the dimension
+     * @return the number of online players in the dimension.
+     */
+    public int getOnline(ResourceKey<Level> dimension) {
+        return perDimension.getInt(dimension);
+    }
+
+    /**
+     * @param party  the party id
+     * @return the number of online members of the party.
+     */
+    public int getOnlineMembers(int party) {
+        return party < perParty.length ? perParty[party] : 0;
+    }
+
+    private int countParty(int player) {
+        if (player == PlayerIds.NONE) {
+            return 0;
+        }
+        int party = registry.getParty(player);
+        return party == PartyRegistry.NONE ? 1 : getOnlineMembers(party);
+    }
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        CommonSnapshot config = CommonSnapshot.get();
+        // Reloads replace the snapshot off the server thread, apply a new radius here once per snapshot.
+        if (event.phase == TickEvent.Phase.START && config != applied) {
+            applied = config;
+            index.setRadius(config.playerCountRadius);
+        }
+    }
+
+    @SubscribeEvent
+    public void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
+        ServerPlayer player = (ServerPlayer) event.getEntity();
+        int id = PlayerIds.idOf(player);
+        if (id != PlayerIds.NONE) {
+            add(id, player.level().dimension());
+        }
+    }
+
+    /**
+     * Counts a player that came online.
+     *
+     * @param id  the player id
+     * @param dimension  the player's dimension
+     */
+    void add(int id, ResourceKey<Level> dimension) {
+        online++;
+        moveDimension(id, dimension);
+        addToParty(registry.getParty(id), 1);
+    }
+
+    @SubscribeEvent
+    public void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        int id = PlayerIds.idOf((ServerPlayer) event.getEntity());
+        if (id == PlayerIds.NONE || id >= dimensionOf.length || dimensionOf[id] == null) {
+            return;
+        }
+        online--;
+        moveDimension(id, null);
+        addToParty(registry.getParty(id), -1);
+    }
+
+    @SubscribeEvent
+    public void onPlayerChangedDimension(PlayerEvent.PlayerChangedDimensionEvent event) {
+        int id = PlayerIds.idOf((ServerPlayer) event.getEntity());
+        if (id != PlayerIds.NONE) {
+            moveDimension(id, event.getTo());
+        }
+    }
+
+    @SubscribeEvent
+    public void onPlayerRespawn(PlayerEvent.PlayerRespawnEvent event) {
+        // Respawning (and leaving the End) can change dimension without a change event.
+        int id = PlayerIds.idOf((ServerPlayer) event.getEntity());
+        if (id != PlayerIds.NONE) {
+            moveDimension(id, event.getEntity().level().dimension());
+        }
+    }
+
+    @Override
+    public void onCreate(int party, int leader) {
+        ensurePartyCapacity(party);
+        perParty[party] = ids.getPlayer(leader) != null ? 1 : 0;
+    }
+
+    @Override
+    public void onJoin(int party, int player) {
+        if (ids.getPlayer(player) != null) {
+            addToParty(party, 1);
+        }
+    }
+
+    @Override
+    public void onLeave(int party, int player) {
+        if (ids.getPlayer(player) != null) {
+            addToParty(party, -1);
+        }
+    }
+
+    private void addToParty(int party, int delta) {
+        if (party != PartyRegistry.NONE) {
+            ensurePartyCapacity(party);
+            perParty[party] += delta;
+        }
+    }
+
+    private void moveDimension(int id, ResourceKey<Level> to) {
+        if (id >= dimensionOf.length) {
+            dimensionOf = Arrays.copyOf(dimensionOf, Math.max(dimensionOf.length * 2, id + 1));
+        }
+        ResourceKey<Level> from = dimensionOf[id];
+        if (from == to) {
+            return;
+        }
+        if (from != null) {
+            perDimension.addTo(from, -1);
+        }
+        if (to != null) {
+            perDimension.addTo(to, 1);
+        }
+        dimensionOf[id] = to;
+    }
+
+    private void ensurePartyCapacity(int party) {
+        if (party >= perParty.length) {
+            perParty = Arrays.copyOf(perParty, Math.max(perParty.length * 2, party + 1));
+        }
+    }
+}
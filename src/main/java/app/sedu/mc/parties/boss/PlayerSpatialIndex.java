@@ -0,0 +1,340 @@
+package app.sedu.mc.parties.boss;
+
+import java.util.Arrays;
+
+import app.sedu.mc.parties.data.PlayerIds;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.Level;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.LogicalSide;
+
+/**
+ * Uniform grid of online players, one per dimension.
+ * <p>
+ * Players are bucketed into square columns whose size is derived from the
+ * count radius, and move between buckets only when they cross a cell
+ * border. A radius query visits the cells overlapping the query circle,
+ * or scans the dimension's players directly when that is cheaper.
+ * Spectators are left out, and are added or removed on their next tick
+ * when their game mode changes.
+ */
+public class PlayerSpatialIndex {
+    private static final int MIN_SHIFT = 4;
+    private static final int MAX_SHIFT = 10;
+
+    private static final class Grid {
+        final Long2ObjectOpenHashMap<IntArrayList> cells = new Long2ObjectOpenHashMap<>();
+        final IntArrayList players = new IntArrayList();
+    }
+
+    private final Reference2ObjectOpenHashMap<ResourceKey<Level>, Grid> grids = new Reference2ObjectOpenHashMap<>();
+    private int shift;
+
+    private Grid[] gridOf = new Grid[64];
+    private long[] cellOf = new long[64];
+    private double[] x = new double[64];
+    private double[] y = new double[64];
+    private double[] z = new double[64];
+
+    /**
+     * @param radius  the radius most queries will use, in blocks
+     */
+    public PlayerSpatialIndex(int radius) {
+        shift = shiftFor(radius);
+    }
+
+    /**
+     * Picks a power of two cell size of about half the radius, so a query
+     * touches roughly 5x5 cells.
+     */
+    private static int shiftFor(int radius) {
+        int shift = 31 - Integer.numberOfLeadingZeros(Math.max(1, radius / 2));
+        return Math.max(MIN_SHIFT, Math.min(MAX_SHIFT, shift));
+    }
+
+    /**
+     * Re-buckets every player for a new query radius.
+     *
+     * @param radius  the new radius in blocks
+     */
+    public void setRadius(int radius) {
+        int newShift = shiftFor(radius);
+        if (newShift == shift) {
+            return;
+        }
+        shift = newShift;
+        for (Grid grid : grids.values()) {
+            grid.cells.clear();
+            for (int i = 0, n = grid.players.size(); i < n; i++) {
+                int id = grid.players.getInt(i);
+                cellOf[id] = key(x[id], z[id]);
+                cell(grid, cellOf[id]).add(id);
+            }
+        }
+    }
+
+    /**
+     * Counts the online players within a radius of a position.
+     *
+     * @param dimension  the dimension to search
+     * @param radius  the radius in blocks
+     * @return the number of players within the radius.
+     */
+    public int count(ResourceKey<Level> dimension, double px, double py, double pz, int radius) {
+        Grid grid = grids.get(dimension);
+        if (grid == null || grid.players.isEmpty()) {
+            return 0;
+        }
+        double radiusSqr = (double) radius * radius;
+        int minX = (int) Math.floor(px - radius) >> shift;
+        int maxX = (int) Math.floor(px + radius) >> shift;
+        int minZ = (int) Math.floor(pz - radius) >> shift;
+        int maxZ = (int) Math.floor(pz + radius) >> shift;
+        long cells = (long) (maxX - minX + 1) * (maxZ - minZ + 1);
+
+        if (cells >= grid.cells.size()) {
+            return count(grid.players, px, py, pz, radiusSqr);
+        }
+        int total = 0;
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cz = minZ; cz <= maxZ; cz++) {
+                IntArrayList cell = grid.cells.get(pack(cx, cz));
+                if (cell != null) {
+                    total += count(cell, px, py, pz, radiusSqr);
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Finds the online player closest to a position by searching rings of
+     * cells outward from the position's cell.
+     *
+     * @param dimension  the dimension to search
+     * @return the id of the nearest player, or {@link PlayerIds#NONE} if the dimension has no players.
+     */
+    public int nearest(ResourceKey<Level> dimension, double px, double py, double pz) {
+        Grid grid = grids.get(dimension);
+        if (grid == null || grid.players.isEmpty()) {
+            return PlayerIds.NONE;
+        }
+        int originX = (int) Math.floor(px) >> shift;
+        int originZ = (int) Math.floor(pz) >> shift;
+        double cellSize = 1 << shift;
+        int best = PlayerIds.NONE;
+        double bestSqr = Double.MAX_VALUE;
+        int visited = 0;
+        for (int ring = 0; ; ring++) {
+            // Cells in this ring and beyond are at least (ring - 1) cells away horizontally.
+            double reach = (ring - 1) * cellSize;
+            if (best != PlayerIds.NONE && ring > 0 && reach * reach >= bestSqr) {
+                return best;
+            }
+            if (visited >= grid.cells.size()) {
+                // Rings have outgrown the populated area, finish with a scan.
+                return nearest(grid.players, px, py, pz);
+            }
+            for (int cx = originX - ring; cx <= originX + ring; cx++) {
+                boolean edgeX = cx == originX - ring || cx == originX + ring;
+                for (int cz = originZ - ring; cz <= originZ + ring; cz += edgeX || ring == 0 ? 1 : 2 * ring) {
+                    visited++;
+                    IntArrayList cell = grid.cells.get(pack(cx, cz));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (int i = 0, n = cell.size(); i < n; i++) {
+                        int id = cell.getInt(i);
+                        double distSqr = distanceSqr(id, px, py, pz);
+                        if (distSqr < bestSqr) {
+                            bestSqr = distSqr;
+                            best = id;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private int nearest(IntArrayList ids, double px, double py, double pz) {
+        int best = PlayerIds.NONE;
+        double bestSqr = Double.MAX_VALUE;
+        for (int i = 0, n = ids.size(); i < n; i++) {
+            int id = ids.getInt(i);
+            double distSqr = distanceSqr(id, px, py, pz);
+            if (distSqr < bestSqr) {
+                bestSqr = distSqr;
+                best = id;
+            }
+        }
+        return best;
+    }
+
+    private double distanceSqr(int id, double px, double py, double pz) {
+        double dx = x[id] - px;
+        double dy = y[id] - py;
+        double dz = z[id] - pz;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private int count(IntArrayList ids, double px, double py, double pz, double radiusSqr) {
+        int total = 0;
+        for (int i = 0, n = ids.size(); i < n; i++) {
+            if (distanceSqr(ids.getInt(i), px, py, pz) <= radiusSqr) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    @SubscribeEvent
+    public void onPlayerTick(TickEvent.PlayerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || event.side != LogicalSide.SERVER) {
+            return;
+        }
+        ServerPlayer player = (ServerPlayer) event.player;
+        int id = PlayerIds.idOf(player);
+        boolean indexed = id != PlayerIds.NONE && id < gridOf.length && gridOf[id] != null;
+        if (player.isSpectator()) {
+            if (indexed) {
+                remove(id);
+            }
+        } else if (indexed) {
+            move(id, player.getX(), player.getY(), player.getZ());
+        } else {
+            add(player);
+        }
+    }
+
+    @SubscribeEvent
+    public void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
+        add((ServerPlayer) event.getEntity());
+    }
+
+    @SubscribeEvent
+    public void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        remove(PlayerIds.idOf((ServerPlayer) event.getEntity()));
+    }
+
+    @SubscribeEvent
+    public void onPlayerChangedDimension(PlayerEvent.PlayerChangedDimensionEvent event) {
+        remove(PlayerIds.idOf((ServerPlayer) event.getEntity()));
+        add((ServerPlayer) event.getEntity());
+    }
+
+    @SubscribeEvent
+    public void onPlayerRespawn(PlayerEvent.PlayerRespawnEvent event) {
+        remove(PlayerIds.idOf((ServerPlayer) event.getEntity()));
+        add((ServerPlayer) event.getEntity());
+    }
+
+    private void add(ServerPlayer player) {
+        if (player.isSpectator()) {
+            return;
+        }
+        add(PlayerIds.idOf(player), player.level().dimension(), player.getX(), player.getY(), player.getZ());
+    }
+
+    /**
+     * Adds a player to the index. The index keeps itself up to date from
+     * player events; this is for callers that track positions themselves.
+     *
+     * @param id  the player id
+     * @param dimension  the player's dimension
+     */
+    public void add(int id, ResourceKey<Level> dimension, double px, double py, double pz) {
+        if (id == PlayerIds.NONE) {
+            return;
+        }
+        ensureCapacity(id);
+        Grid grid = grids.computeIfAbsent(dimension, key -> new Grid());
+        x[id] = px;
+        y[id] = py;
+        z[id] = pz;
+        cellOf[id] = key(px, pz);
+        gridOf[id] = grid;
+        grid.players.add(id);
+        cell(grid, cellOf[id]).add(id);
+    }
+
+    /**
+     * Updates the position of a player in the index, within its dimension.
+     *
+     * @param id  the player id
+     */
+    public void move(int id, double px, double py, double pz) {
+        if (id == PlayerIds.NONE || id >= gridOf.length || gridOf[id] == null) {
+            return;
+        }
+        x[id] = px;
+        y[id] = py;
+        z[id] = pz;
+        long key = key(px, pz);
+        if (key != cellOf[id]) {
+            Grid grid = gridOf[id];
+            removeFromCell(grid, id);
+            cellOf[id] = key;
+            cell(grid, key).add(id);
+        }
+    }
+
+    /**
+     * Removes a player from the index.
+     *
+     * @param id  the player id
+     */
+    public void remove(int id) {
+        if (id == PlayerIds.NONE || id >= gridOf.length || gridOf[id] == null) {
+            return;
+        }
+        Grid grid = gridOf[id];
+        removeFromCell(grid, id);
+        grid.players.rem(id);
+        gridOf[id] = null;
+    }
+
+    private void removeFromCell(Grid grid, int id) {
+        IntArrayList cell = grid.cells.get(cellOf[id]);
+        if (cell != null) {
+            cell.rem(id);
+            if (cell.isEmpty()) {
+                grid.cells.remove(cellOf[id]);
+            }
+        }
+    }
+
+    private static IntArrayList cell(Grid grid, long key) {
+        IntArrayList cell = grid.cells.get(key);
+        if (cell == null) {
+            cell = new IntArrayList(4);
+            grid.cells.put(key, cell);
+        }
+        return cell;
+    }
+
+    private long key(double px, double pz) {
+        return pack((int) Math.floor(px) >> shift, (int) Math.floor(pz) >> shift);
+    }
+
+    private static long pack(int cx, int cz) {
+        return (long) cx << 32 | (cz & 0xFFFFFFFFL);
+    }
+
+    private void ensureCapacity(int id) {
+        if (id < gridOf.length) {
+            return;
+        }
+        int capacity = Math.max(gridOf.length * 2, id + 1);
+        gridOf = Arrays.copyOf(gridOf, capacity);
+        cellOf = Arrays.copyOf(cellOf, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        z = Arrays.copyOf(z, capacity);
+    }
+}
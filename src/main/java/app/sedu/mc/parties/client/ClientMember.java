@@ -0,0 +1,106 @@
+package app.sedu.mc.parties.client;
+
+import java.util.UUID;
+
+import app.sedu.mc.parties.sync.MemberStat;
+import net.minecraft.resources.ResourceLocation;
+
+/**
+ * The client's view of a single party member, as synced by the server.
+ */
+public class ClientMember {
+    private final int id;
+    private final float[] stats = new float[MemberStat.COUNT];
+    private final MemberEffects effects = new MemberEffects();
+    private UUID uuid;
+    private String name = "";
+    private ResourceLocation dimension;
+    private boolean online;
+    private int version;
+
+    ClientMember(int id) {
+        this.id = id;
+    }
+
+    /**
+     * @return the server-side id of the member, used by every party packet.
+     */
+    public int getId() {
+        return id;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the member's dimension, or null if the member is offline.
+     */
+    public ResourceLocation getDimension() {
+        return dimension;
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public float get(MemberStat stat) {
+        return stats[stat.ordinal()];
+    }
+
+    /**
+     * @return the member's active potion effects.
+     */
+    public MemberEffects getEffects() {
+        return effects;
+    }
+
+    /**
+     * Retrieves a counter that increases every time the member's data changes.
+     * Renderers can compare it against the last version they drew.
+     *
+     * @return the current version.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    void setIdentity(UUID uuid, String name, ResourceLocation dimension, boolean online) {
+        this.uuid = uuid;
+        this.name = name;
+        this.dimension = dimension;
+        this.online = online;
+        version++;
+    }
+
+    void set(MemberStat stat, float value) {
+        stats[stat.ordinal()] = value;
+        version++;
+    }
+
+    void putEffect(int effect, int amplifier, long end) {
+        effects.put(effect, amplifier, end);
+        version++;
+    }
+
+    void removeEffect(int effect) {
+        if (effects.remove(effect)) {
+            version++;
+        }
+    }
+
+    void clearEffects() {
+        effects.clear();
+        version++;
+    }
+
+    void expireEffects(long tick) {
+        if (effects.expire(tick)) {
+            version++;
+        }
+    }
+}
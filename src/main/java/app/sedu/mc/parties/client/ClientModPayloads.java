@@ -0,0 +1,72 @@
+package app.sedu.mc.parties.client;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import app.sedu.mc.parties.Parties;
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.client.event.ClientPlayerNetworkEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+/**
+ * Hands relayed mod states to the handlers registered for their channels.
+ */
+@Mod.EventBusSubscriber(modid = Parties.MODID, value = Dist.CLIENT)
+public final class ClientModPayloads {
+    public static final ClientModPayloads INSTANCE = new ClientModPayloads();
+
+    /**
+     * Receives the states relayed on a channel.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        /**
+         * @param member  the server-side id of the party member, as used by {@link ClientPartyData}
+         * @param state  the member's new state, empty if the state was cleared
+         */
+        void accept(int member, FriendlyByteBuf state);
+    }
+
+    private final Map<ResourceLocation, Handler> handlers = new HashMap<>();
+    private final Int2ObjectOpenHashMap<ResourceLocation> channels = new Int2ObjectOpenHashMap<>();
+
+    private ClientModPayloads() {}
+
+    /**
+     * Registers the handler of a channel. Called during client setup.
+     */
+    public synchronized void register(ResourceLocation channel, Handler handler) {
+        handlers.put(channel, handler);
+    }
+
+    /**
+     * Applies a relay payload received from the server.
+     */
+    public void apply(FriendlyByteBuf buf) {
+        for (int i = 0, n = buf.readVarInt(); i < n; i++) {
+            int id = buf.readVarInt();
+            channels.put(id, buf.readResourceLocation());
+        }
+        for (int i = 0, members = buf.readVarInt(); i < members; i++) {
+            int member = buf.readVarInt();
+            for (int j = 0, n = buf.readVarInt(); j < n; j++) {
+                ResourceLocation channel = channels.get(buf.readVarInt());
+                byte[] state = buf.readByteArray();
+                Handler handler = channel != null ? handlers.get(channel) : null;
+                if (handler != null) {
+                    handler.accept(member, new FriendlyByteBuf(Unpooled.wrappedBuffer(state)));
+                }
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLoggingOut(ClientPlayerNetworkEvent.LoggingOut event) {
+        INSTANCE.channels.clear();
+    }
+}
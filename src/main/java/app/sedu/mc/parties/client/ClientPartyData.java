@@ -0,0 +1,132 @@
+package app.sedu.mc.parties.client;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+
+import app.sedu.mc.parties.Parties;
+import app.sedu.mc.parties.config.ClientSnapshot;
+import app.sedu.mc.parties.sync.MemberStat;
+import app.sedu.mc.parties.sync.MemberSyncCodec;
+import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
+import net.minecraft.client.Minecraft;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.client.event.ClientPlayerNetworkEvent;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+/**
+ * Holds the party members the server has synced to this client.
+ */
+@Mod.EventBusSubscriber(modid = Parties.MODID, value = Dist.CLIENT)
+public final class ClientPartyData implements MemberSyncCodec.Handler {
+    public static final ClientPartyData INSTANCE = new ClientPartyData();
+
+    private final Int2ObjectLinkedOpenHashMap<ClientMember> members = new Int2ObjectLinkedOpenHashMap<>();
+    private final Collection<ClientMember> view = Collections.unmodifiableCollection(members.values());
+    private long tick;
+
+    private ClientPartyData() {}
+
+    /**
+     * Applies a member sync payload received from the server.
+     *
+     * @param buf  the payload
+     */
+    public void apply(FriendlyByteBuf buf) {
+        MemberSyncCodec.read(buf, this);
+    }
+
+    /**
+     * @return the synced party members in the order the server first sent them.
+     */
+    public Collection<ClientMember> getMembers() {
+        return view;
+    }
+
+    /**
+     * @param id  the server-side member id
+     * @return the member, or null if the member is not synced.
+     */
+    public ClientMember get(int id) {
+        return members.get(id);
+    }
+
+    public boolean isInParty() {
+        return !members.isEmpty();
+    }
+
+    /**
+     * @return the number of client ticks since the game started, the clock effect ends are kept on.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    @Override
+    public void reset() {
+        members.clear();
+    }
+
+    @Override
+    public void identity(int member, UUID uuid, String name, ResourceLocation dimension, boolean online) {
+        ClientMember data = members.get(member);
+        if (data == null) {
+            data = new ClientMember(member);
+            members.put(member, data);
+        }
+        data.setIdentity(uuid, name, dimension, online);
+    }
+
+    @Override
+    public void stat(int member, MemberStat stat, float value) {
+        ClientMember data = members.get(member);
+        if (data != null) {
+            data.set(stat, value);
+        }
+    }
+
+    @Override
+    public void effectReset(int member) {
+        ClientMember data = members.get(member);
+        if (data != null) {
+            data.clearEffects();
+        }
+    }
+
+    @Override
+    public void effect(int member, int effect, int amplifier, int duration) {
+        ClientMember data = members.get(member);
+        if (data == null) {
+            return;
+        }
+        if (duration == MemberSyncCodec.REMOVED) {
+            data.removeEffect(effect);
+        } else {
+            long end = duration == MemberSyncCodec.INFINITE ? MemberEffects.INFINITE : tick + duration;
+            data.putEffect(effect, amplifier, end);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || Minecraft.getInstance().isPaused()) {
+            return;
+        }
+        INSTANCE.tick++;
+        // Without this the effects stay until the server says they ended.
+        if (ClientSnapshot.get().endPotionEffects) {
+            for (ClientMember member : INSTANCE.members.values()) {
+                member.expireEffects(INSTANCE.tick);
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLoggingOut(ClientPlayerNetworkEvent.LoggingOut event) {
+        INSTANCE.reset();
+    }
+}
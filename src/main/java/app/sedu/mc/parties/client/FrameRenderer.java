@@ -0,0 +1,122 @@
+package app.sedu.mc.parties.client;
+
+import org.joml.Quaternionf;
+
+import app.sedu.mc.parties.config.ClientSnapshot;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.Font;
+import net.minecraft.client.gui.GuiGraphics;
+import net.minecraft.client.gui.components.PlayerFaceRenderer;
+import net.minecraft.client.gui.screens.inventory.InventoryScreen;
+import net.minecraft.client.resources.MobEffectTextureManager;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.util.Mth;
+import net.minecraft.world.effect.MobEffect;
+import net.minecraft.world.entity.player.Player;
+
+/**
+ * Draws the contents of a single party frame at the origin, in GUI units.
+ * The values to draw are filled into a reused instance before each call.
+ */
+final class FrameRenderer {
+    static final int WIDTH = 120;
+    static final int HEIGHT = 40;
+    private static final int MAX_EFFECTS = (WIDTH - 6) / 10;
+
+    private static final int BACKGROUND = 0x90000000;
+    private static final int BAR_BACKGROUND = 0xFF3A0A0A;
+    private static final int HEALTH = 0xFFD42A2A;
+    private static final int ABSORPTION = 0xFFE8C33A;
+    private static final int OFFLINE = 0xFF808080;
+
+    String name;
+    ResourceLocation skin;
+    /** The entity to draw as a model, or null to draw the head. */
+    Player model;
+    boolean online;
+    float health;
+    float maxHealth;
+    float absorption;
+    int armor;
+    int hunger;
+    int level;
+    /** Registry ids of the effects to draw. */
+    final int[] effects = new int[MAX_EFFECTS];
+    int effectCount;
+
+    /**
+     * Adds an effect to draw, ignoring effects past what the frame can fit.
+     */
+    void addEffect(int effect) {
+        if (effectCount < MAX_EFFECTS) {
+            effects[effectCount++] = effect;
+        }
+    }
+
+    void draw(GuiGraphics graphics) {
+        Font font = Minecraft.getInstance().font;
+        graphics.fill(0, 0, WIDTH, HEIGHT, BACKGROUND);
+
+        if (model != null) {
+            drawModel(graphics, model);
+        } else {
+            PlayerFaceRenderer.draw(graphics, skin, 3, 3, 24);
+        }
+        graphics.drawString(font, name, 31, 3, online ? 0xFFFFFF : OFFLINE);
+
+        if (!online) {
+            graphics.drawString(font, "Offline", 31, 19, OFFLINE);
+            return;
+        }
+        int barWidth = WIDTH - 35;
+        float total = Math.max(maxHealth, 1f);
+        graphics.fill(31, 13, 31 + barWidth, 18, BAR_BACKGROUND);
+        graphics.fill(31, 13, 31 + Mth.ceil(barWidth * Mth.clamp(health / total, 0f, 1f)), 18, HEALTH);
+        if (absorption > 0) {
+            int width = Mth.ceil(barWidth * Mth.clamp(absorption / total, 0f, 1f));
+            graphics.fill(31, 16, 31 + width, 18, ABSORPTION);
+        }
+        graphics.drawString(font, "Lv " + level, 31, 20, 0x80FF20);
+        graphics.drawString(font, "\u2726" + armor, 66, 20, 0xC0C0C0);
+        graphics.drawString(font, "\u25CF" + hunger, 92, 20, 0xC08040);
+
+        MobEffectTextureManager textures = Minecraft.getInstance().getMobEffectTextures();
+        for (int i = 0; i < effectCount; i++) {
+            MobEffect effect = BuiltInRegistries.MOB_EFFECT.byId(effects[i]);
+            if (effect != null) {
+                graphics.blit(3 + i * 10, 30, 0, 9, 9, textures.get(effect));
+            }
+        }
+    }
+
+    /**
+     * Draws the entity in the head area. With forced rotation the model faces
+     * forward, turned by the configured offset; otherwise it keeps the
+     * rotation it has in the world.
+     */
+    private static void drawModel(GuiGraphics graphics, Player player) {
+        Quaternionf pose = new Quaternionf().rotateZ((float) Math.PI);
+        if (!ClientSnapshot.get().forceModelRotation) {
+            InventoryScreen.renderEntityInInventory(graphics, 15, 28, 12, pose, null, player);
+            return;
+        }
+        float bodyRot = player.yBodyRot;
+        float yRot = player.getYRot();
+        float xRot = player.getXRot();
+        float headRotO = player.yHeadRotO;
+        float headRot = player.yHeadRot;
+        float facing = 180f + ClientSnapshot.get().rotationOffset;
+        player.yBodyRot = facing;
+        player.setYRot(facing);
+        player.setXRot(0);
+        player.yHeadRot = facing;
+        player.yHeadRotO = facing;
+        InventoryScreen.renderEntityInInventory(graphics, 15, 28, 12, pose, null, player);
+        player.yBodyRot = bodyRot;
+        player.setYRot(yRot);
+        player.setXRot(xRot);
+        player.yHeadRotO = headRotO;
+        player.yHeadRot = headRot;
+    }
+}
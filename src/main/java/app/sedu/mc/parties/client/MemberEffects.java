@@ -0,0 +1,159 @@
+package app.sedu.mc.parties.client;
+
+import java.util.Arrays;
+
+/**
+ * The potion effects of a party member, as a binary min-heap keyed by the
+ * client tick each effect ends on.
+ * <p>
+ * The server only sends effects as they are added or removed, so the client
+ * expires them itself: each tick costs a single comparison against the top
+ * of the heap until an effect is actually due. Effects are identified by
+ * their registry id. Effects without an end are stored with an end tick of
+ * {@link Long#MAX_VALUE} and never expire locally.
+ */
+public final class MemberEffects {
+    public static final long INFINITE = Long.MAX_VALUE;
+
+    private int[] effects = new int[4];
+    private int[] amplifiers = new int[4];
+    private long[] ends = new long[4];
+    private int size;
+
+    /**
+     * @return the number of active effects.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves the registry id of the effect at an index. Indexes follow
+     * heap order, which only guarantees that index 0 ends first.
+     */
+    public int getEffect(int index) {
+        return effects[index];
+    }
+
+    public int getAmplifier(int index) {
+        return amplifiers[index];
+    }
+
+    /**
+     * @return the client tick the effect at the index ends on, or {@link #INFINITE}.
+     */
+    public long getEnd(int index) {
+        return ends[index];
+    }
+
+    /**
+     * Adds an effect, or replaces the amplifier and end of an active one.
+     */
+    void put(int effect, int amplifier, long end) {
+        int index = indexOf(effect);
+        if (index < 0) {
+            if (size == effects.length) {
+                effects = Arrays.copyOf(effects, size * 2);
+                amplifiers = Arrays.copyOf(amplifiers, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            index = size++;
+            effects[index] = effect;
+        }
+        amplifiers[index] = amplifier;
+        ends[index] = end;
+        siftDown(siftUp(index));
+    }
+
+    /**
+     * @return true if the effect was active.
+     */
+    boolean remove(int effect) {
+        int index = indexOf(effect);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Removes every effect that ends on or before the given tick.
+     *
+     * @return true if any effect was removed.
+     */
+    boolean expire(long tick) {
+        boolean expired = false;
+        while (size > 0 && ends[0] <= tick) {
+            removeAt(0);
+            expired = true;
+        }
+        return expired;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    private int indexOf(int effect) {
+        for (int i = 0; i < size; i++) {
+            if (effects[i] == effect) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int index) {
+        size--;
+        if (index != size) {
+            move(size, index);
+            siftDown(siftUp(index));
+        }
+    }
+
+    private int siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (ends[parent] <= ends[index]) {
+                break;
+            }
+            swap(parent, index);
+            index = parent;
+        }
+        return index;
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && ends[child + 1] < ends[child]) {
+                child++;
+            }
+            if (ends[index] <= ends[child]) {
+                return;
+            }
+            swap(index, child);
+            index = child;
+        }
+    }
+
+    private void move(int from, int to) {
+        effects[to] = effects[from];
+        amplifiers[to] = amplifiers[from];
+        ends[to] = ends[from];
+    }
+
+    private void swap(int a, int b) {
+        int effect = effects[a];
+        int amplifier = amplifiers[a];
+        long end = ends[a];
+        move(b, a);
+        effects[b] = effect;
+        amplifiers[b] = amplifier;
+        ends[b] = end;
+    }
+}
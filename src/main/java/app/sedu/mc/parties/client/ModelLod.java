@@ -0,0 +1,23 @@
+package app.sedu.mc.parties.client;
+
+/**
+ * How often a frame's player model is redrawn, from most to least detailed.
+ */
+enum ModelLod {
+    /** Redrawn every frame. */
+    LIVE,
+    /** Redrawn at the configured model refresh rate. */
+    ANIMATED,
+    /** Drawn as a head, redrawn only when the frame's data changes. */
+    HEAD;
+
+    private static final ModelLod[] VALUES = values();
+
+    /**
+     * @param steps  the number of levels to lower the detail by
+     * @return this level lowered by the given number of steps, at most down to {@link #HEAD}.
+     */
+    ModelLod lower(int steps) {
+        return VALUES[Math.min(HEAD.ordinal(), ordinal() + steps)];
+    }
+}
@@ -0,0 +1,374 @@
+package app.sedu.mc.parties.client;
+
+import org.joml.Matrix4f;
+
+import com.mojang.blaze3d.pipeline.RenderTarget;
+import com.mojang.blaze3d.pipeline.TextureTarget;
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.BufferBuilder;
+import com.mojang.blaze3d.vertex.BufferUploader;
+import com.mojang.blaze3d.vertex.DefaultVertexFormat;
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.Tesselator;
+import com.mojang.blaze3d.vertex.VertexFormat;
+import com.mojang.blaze3d.vertex.VertexSorting;
+
+import app.sedu.mc.parties.config.ClientConfig.RenderType;
+import app.sedu.mc.parties.config.ClientSnapshot;
+import app.sedu.mc.parties.sync.MemberStat;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.Util;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.GuiGraphics;
+import net.minecraft.client.multiplayer.PlayerInfo;
+import net.minecraft.client.player.LocalPlayer;
+import net.minecraft.client.renderer.GameRenderer;
+import net.minecraft.client.resources.DefaultPlayerSkin;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.effect.MobEffectInstance;
+import net.minecraft.world.entity.player.Player;
+import net.minecraftforge.client.gui.overlay.ForgeGui;
+import net.minecraftforge.client.gui.overlay.IGuiOverlay;
+
+/**
+ * Draws the party frames: the player's own frame followed by one frame per
+ * synced party member.
+ * <p>
+ * Each frame is rendered once into its own texture and composited as a
+ * single quad every frame after that. A frame is redrawn only when its
+ * signature changes (the member's synced data, skin or model state) or when
+ * the client config is reloaded, so an unchanged HUD costs one textured
+ * quad per member regardless of what the frames contain. Frames with a live
+ * model change every frame, so they are drawn straight onto the screen
+ * instead.
+ * <p>
+ * Player models are drawn at a {@link ModelLod level of detail}: live for
+ * the player's own frame and the member under the crosshair, at the
+ * configured refresh rate for other members, and as heads for members out
+ * of render distance. When the HUD's averaged draw time goes over the
+ * configured budget every level is lowered a step, and raised again once
+ * the HUD has stayed well under budget for a while.
+ */
+public final class PartyHud implements IGuiOverlay {
+    public static final PartyHud INSTANCE = new PartyHud();
+
+    /** Key of the player's own frame; member ids are never negative. */
+    private static final int SELF = -1;
+    private static final int SPACING = FrameRenderer.HEIGHT + 2;
+    /** Frames to wait after changing the detail level before changing it again. */
+    private static final int LOD_COOLDOWN = 30;
+    /** Frames the HUD has to stay under half its budget before detail is raised. */
+    private static final int LOD_RECOVERY = 240;
+
+    private static final class Slot {
+        TextureTarget target;
+        int signature;
+        int epoch = -1;
+        int lastUsed;
+    }
+
+    private final Int2ObjectOpenHashMap<Slot> slots = new Int2ObjectOpenHashMap<>();
+    private final FrameRenderer renderer = new FrameRenderer();
+    /** Maps a frame's GUI units onto the whole of its texture. */
+    private final Matrix4f frameProjection = new Matrix4f().setOrtho(0, FrameRenderer.WIDTH, FrameRenderer.HEIGHT, 0,
+        1000f, 21000f);
+    private GuiGraphics frameGraphics;
+    private ClientSnapshot config;
+    private int epoch;
+    private int frame;
+    private double guiScale;
+
+    private double averageNanos;
+    private int lodSteps;
+    private int lodCooldown;
+    private int underBudget;
+
+    private PartyHud() {}
+
+    /**
+     * Marks every cached frame for redraw, for example after a config reload.
+     */
+    public void invalidate() {
+        epoch++;
+    }
+
+    @Override
+    public void render(ForgeGui gui, GuiGraphics graphics, float partialTick, int screenWidth, int screenHeight) {
+        Minecraft mc = gui.getMinecraft();
+        LocalPlayer self = mc.player;
+        if (self == null || mc.options.hideGui) {
+            return;
+        }
+        long start = System.nanoTime();
+        frame++;
+        double scale = mc.getWindow().getGuiScale();
+        if (scale != guiScale) {
+            // Texture sizes depend on the GUI scale, so start over.
+            guiScale = scale;
+            clear();
+        }
+
+        // One snapshot for the whole frame, so a reload never mixes settings.
+        config = ClientSnapshot.get();
+        ClientPartyData party = ClientPartyData.INSTANCE;
+        ClientMember focused = focused(mc);
+        long step = Util.getMillis() * config.modelRefreshRate / 1000L;
+        int x = 4;
+        int y = 4;
+        RenderType playerRender = config.playerRenderType;
+        if (playerRender == RenderType.ON || playerRender == RenderType.PARTY && party.isInParty()) {
+            fillSelf(mc, self);
+            draw(mc, graphics, SELF, self.getGameProfile().getName().hashCode(), ModelLod.LIVE, step, x, y);
+            y += SPACING;
+        }
+        for (ClientMember member : party.getMembers()) {
+            fillMember(mc, member);
+            ModelLod lod = member == focused ? ModelLod.LIVE : ModelLod.ANIMATED;
+            draw(mc, graphics, member.getId(), member.getVersion(), lod, step, x, y);
+            y += SPACING;
+        }
+        evict();
+        updateLod(System.nanoTime() - start);
+    }
+
+    /**
+     * @return the synced member under the crosshair, or null.
+     */
+    private static ClientMember focused(Minecraft mc) {
+        if (!(mc.crosshairPickEntity instanceof Player target)) {
+            return null;
+        }
+        for (ClientMember member : ClientPartyData.INSTANCE.getMembers()) {
+            if (target.getUUID().equals(member.getUuid())) {
+                return member;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tracks an exponential average of the HUD's draw time and moves the
+     * detail level when it leaves the budget.
+     */
+    private void updateLod(long nanos) {
+        averageNanos += (nanos - averageNanos) * 0.1;
+        if (lodCooldown > 0) {
+            lodCooldown--;
+            return;
+        }
+        double budget = config.hudBudgetMicros * 1000.0;
+        if (averageNanos > budget) {
+            underBudget = 0;
+            if (lodSteps < ModelLod.HEAD.ordinal()) {
+                lodSteps++;
+                lodCooldown = LOD_COOLDOWN;
+            }
+        } else if (averageNanos < budget / 2 && lodSteps > 0) {
+            if (++underBudget >= LOD_RECOVERY) {
+                underBudget = 0;
+                lodSteps--;
+                lodCooldown = LOD_COOLDOWN;
+            }
+        } else {
+            underBudget = 0;
+        }
+    }
+
+    private void fillSelf(Minecraft mc, LocalPlayer self) {
+        FrameRenderer r = renderer;
+        r.name = self.getGameProfile().getName();
+        r.skin = self.getSkinTextureLocation();
+        r.model = config.headType >= 1 ? self : null;
+        r.online = true;
+        r.health = self.getHealth();
+        r.maxHealth = self.getMaxHealth();
+        r.absorption = self.getAbsorptionAmount();
+        r.armor = self.getArmorValue();
+        r.hunger = self.getFoodData().getFoodLevel();
+        r.level = self.experienceLevel;
+        r.effectCount = 0;
+        for (MobEffectInstance effect : self.getActiveEffects()) {
+            r.addEffect(BuiltInRegistries.MOB_EFFECT.getId(effect.getEffect()));
+        }
+    }
+
+    private void fillMember(Minecraft mc, ClientMember member) {
+        FrameRenderer r = renderer;
+        r.name = member.getName();
+        r.skin = skinOf(mc, member);
+        // Members outside of render distance have no entity and fall back to the head.
+        r.model = config.headType == 2 && member.getUuid() != null && mc.level != null
+            ? mc.level.getPlayerByUUID(member.getUuid())
+            : null;
+        r.online = member.isOnline();
+        r.health = member.get(MemberStat.HEALTH);
+        r.maxHealth = member.get(MemberStat.MAX_HEALTH);
+        r.absorption = member.get(MemberStat.ABSORPTION);
+        r.armor = (int) member.get(MemberStat.ARMOR);
+        r.hunger = (int) member.get(MemberStat.HUNGER);
+        r.level = (int) member.get(MemberStat.XP_LEVEL);
+        r.effectCount = 0;
+        MemberEffects effects = member.getEffects();
+        for (int i = 0, n = effects.size(); i < n; i++) {
+            r.addEffect(effects.getEffect(i));
+        }
+    }
+
+    private static ResourceLocation skinOf(Minecraft mc, ClientMember member) {
+        if (member.getUuid() == null) {
+            return DefaultPlayerSkin.getDefaultSkin();
+        }
+        PlayerInfo info = mc.getConnection() != null ? mc.getConnection().getPlayerInfo(member.getUuid()) : null;
+        return info != null ? info.getSkinLocation() : DefaultPlayerSkin.getDefaultSkin(member.getUuid());
+    }
+
+    /**
+     * Combines a source-specific value with the renderer state that can
+     * change independently of synced data: the skin finishing its download,
+     * the player entering render distance, and the local player's own stats
+     * and effects.
+     * Frames with an animated model also change signature at the model
+     * refresh rate.
+     */
+    private int signature(int base, ModelLod lod, long step) {
+        FrameRenderer r = renderer;
+        if (lod == ModelLod.ANIMATED) {
+            base = 31 * base + Long.hashCode(step);
+        }
+        int hash = base;
+        hash = 31 * hash + System.identityHashCode(r.skin);
+        hash = 31 * hash + System.identityHashCode(r.model);
+        hash = 31 * hash + Float.floatToIntBits(r.health);
+        hash = 31 * hash + Float.floatToIntBits(r.maxHealth);
+        hash = 31 * hash + Float.floatToIntBits(r.absorption);
+        hash = 31 * hash + r.armor;
+        hash = 31 * hash + r.hunger;
+        hash = 31 * hash + r.level;
+        for (int i = 0; i < r.effectCount; i++) {
+            hash = 31 * hash + r.effects[i];
+        }
+        return 31 * hash + (r.online ? 1 : 0);
+    }
+
+    /**
+     * Draws the frame filled into the renderer. Frames with a model are drawn
+     * at their level of detail lowered by the current steps; a live model is
+     * drawn directly, and frames lowered to {@link ModelLod#HEAD} drop the
+     * model.
+     */
+    private void draw(Minecraft mc, GuiGraphics graphics, int key, int base, ModelLod lod, long step, int x, int y) {
+        if (renderer.model == null) {
+            lod = ModelLod.HEAD;
+        } else {
+            lod = lod.lower(lodSteps);
+            if (lod == ModelLod.HEAD) {
+                renderer.model = null;
+            }
+        }
+        if (lod == ModelLod.LIVE) {
+            // Its slot, if it had one, is not used this frame and gets evicted.
+            PoseStack pose = graphics.pose();
+            pose.pushPose();
+            pose.translate(x, y, 0);
+            renderer.draw(graphics);
+            pose.popPose();
+            return;
+        }
+        int signature = signature(base, lod, step);
+        Slot slot = slots.get(key);
+        if (slot == null) {
+            slot = new Slot();
+            slots.put(key, slot);
+        }
+        slot.lastUsed = frame;
+        if (slot.target == null) {
+            int width = (int) Math.ceil(FrameRenderer.WIDTH * guiScale);
+            int height = (int) Math.ceil(FrameRenderer.HEIGHT * guiScale);
+            slot.target = new TextureTarget(width, height, true, Minecraft.ON_OSX);
+            slot.epoch = epoch - 1;
+        }
+        if (slot.signature != signature || slot.epoch != epoch) {
+            graphics.flush();
+            redraw(mc, slot.target);
+            slot.signature = signature;
+            slot.epoch = epoch;
+        }
+        composite(graphics, slot.target, x, y);
+    }
+
+    /**
+     * Renders the current frame contents into the target with a projection
+     * that maps the frame's GUI units onto the whole texture.
+     */
+    private void redraw(Minecraft mc, RenderTarget target) {
+        target.setClearColor(0, 0, 0, 0);
+        target.clear(Minecraft.ON_OSX);
+        target.bindWrite(true);
+
+        RenderSystem.backupProjectionMatrix();
+        RenderSystem.setProjectionMatrix(frameProjection, VertexSorting.ORTHOGRAPHIC_Z);
+        PoseStack modelView = RenderSystem.getModelViewStack();
+        modelView.pushPose();
+        modelView.setIdentity();
+        modelView.translate(0, 0, -11000f);
+        RenderSystem.applyModelViewMatrix();
+
+        if (frameGraphics == null) {
+            frameGraphics = new GuiGraphics(mc, mc.renderBuffers().bufferSource());
+        }
+        renderer.draw(frameGraphics);
+        frameGraphics.flush();
+
+        modelView.popPose();
+        RenderSystem.applyModelViewMatrix();
+        RenderSystem.restoreProjectionMatrix();
+        mc.getMainRenderTarget().bindWrite(true);
+    }
+
+    private static void composite(GuiGraphics graphics, RenderTarget target, int x, int y) {
+        RenderSystem.setShader(GameRenderer::getPositionTexShader);
+        RenderSystem.setShaderTexture(0, target.getColorTextureId());
+        RenderSystem.enableBlend();
+        RenderSystem.defaultBlendFunc();
+        Matrix4f matrix = graphics.pose().last().pose();
+        float right = x + FrameRenderer.WIDTH;
+        float bottom = y + FrameRenderer.HEIGHT;
+        // Framebuffer textures are stored bottom-up.
+        BufferBuilder buffer = Tesselator.getInstance().getBuilder();
+        buffer.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_TEX);
+        buffer.vertex(matrix, x, bottom, 0).uv(0, 0).endVertex();
+        buffer.vertex(matrix, right, bottom, 0).uv(1, 0).endVertex();
+        buffer.vertex(matrix, right, y, 0).uv(1, 1).endVertex();
+        buffer.vertex(matrix, x, y, 0).uv(0, 1).endVertex();
+        BufferUploader.drawWithShader(buffer.end());
+        RenderSystem.disableBlend();
+    }
+
+    /**
+     * Releases the textures of frames that were not drawn this frame.
+     */
+    private void evict() {
+        ObjectIterator<Int2ObjectMap.Entry<Slot>> it = slots.int2ObjectEntrySet().fastIterator();
+        while (it.hasNext()) {
+            Slot slot = it.next().getValue();
+            if (slot.lastUsed != frame) {
+                if (slot.target != null) {
+                    slot.target.destroyBuffers();
+                }
+                it.remove();
+            }
+        }
+    }
+
+    private void clear() {
+        for (Slot slot : slots.values()) {
+            if (slot.target != null) {
+                slot.target.destroyBuffers();
+            }
+        }
+        slots.clear();
+    }
+}
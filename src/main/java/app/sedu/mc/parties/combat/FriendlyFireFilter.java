@@ -0,0 +1,44 @@
+package app.sedu.mc.parties.combat;
+
+import app.sedu.mc.parties.config.CommonSnapshot;
+import app.sedu.mc.parties.data.PartyIdCache;
+import app.sedu.mc.parties.data.PartyRegistry;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Entity;
+import net.minecraftforge.event.entity.living.LivingAttackEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+/**
+ * Cancels attacks between party mates when {@code friendlyFire} is off,
+ * including attacks by their pets, summons and projectiles.
+ * <p>
+ * Cancelling the attack event also stops the hurt event, so only the attack
+ * is filtered. Attacks on anything but a partied player return after one
+ * type check and one field read, before the config is even consulted.
+ */
+public class FriendlyFireFilter {
+    private final OwnerResolver owners;
+
+    public FriendlyFireFilter(OwnerResolver owners) {
+        this.owners = owners;
+    }
+
+    @SubscribeEvent(priority = EventPriority.HIGHEST)
+    public void onLivingAttack(LivingAttackEvent event) {
+        if (!(event.getEntity() instanceof ServerPlayer victim)) {
+            return;
+        }
+        int party = PartyIdCache.partyOf(victim);
+        if (party == PartyRegistry.NONE) {
+            return;
+        }
+        Entity attacker = event.getSource().getEntity();
+        if (attacker == null || attacker == victim || CommonSnapshot.get().friendlyFire) {
+            return;
+        }
+        if (owners.partyOf(attacker) == party) {
+            event.setCanceled(true);
+        }
+    }
+}
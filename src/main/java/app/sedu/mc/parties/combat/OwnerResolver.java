@@ -0,0 +1,108 @@
+package app.sedu.mc.parties.combat;
+
+import java.util.UUID;
+
+import app.sedu.mc.parties.data.PartyIdCache;
+import app.sedu.mc.parties.data.PartyRegistry;
+import app.sedu.mc.parties.data.PlayerIds;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.OwnableEntity;
+import net.minecraft.world.entity.TraceableEntity;
+import net.minecraft.world.entity.projectile.Projectile;
+import net.minecraftforge.event.entity.EntityLeaveLevelEvent;
+import net.minecraftforge.event.entity.living.AnimalTameEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+/**
+ * Finds the party behind an entity: a player's own party, or the party of
+ * the player that owns a pet, summon or projectile.
+ * <p>
+ * Owner chains (an arrow shot by a skeleton summoned by a player) are
+ * followed once per entity and the owning player's id is cached by entity
+ * id until the entity leaves its level. Only the owner is cached, so the
+ * party is always current.
+ */
+public class OwnerResolver {
+    private static final int UNKNOWN = Integer.MIN_VALUE;
+    private static final int MAX_DEPTH = 4;
+
+    private final PlayerIds ids;
+    private final PartyRegistry registry;
+    private final Int2IntOpenHashMap owners = new Int2IntOpenHashMap();
+
+    public OwnerResolver(PlayerIds ids, PartyRegistry registry) {
+        this.ids = ids;
+        this.registry = registry;
+        owners.defaultReturnValue(UNKNOWN);
+    }
+
+    /**
+     * @param entity  a player, or an entity that may be owned by one
+     * @return the party id, or {@link PartyRegistry#NONE} if no party is behind the entity.
+     */
+    public int partyOf(Entity entity) {
+        if (entity instanceof ServerPlayer player) {
+            return PartyIdCache.partyOf(player);
+        }
+        int party = partyOf(entity.getId());
+        if (party != UNKNOWN) {
+            return party;
+        }
+        int owner = findOwner(entity);
+        cacheOwner(entity.getId(), owner);
+        return registry.getParty(owner);
+    }
+
+    /**
+     * @param entityId  the id of an entity that is not a player
+     * @return the party id, {@link PartyRegistry#NONE} if no party is behind the entity, or
+     * {@code Integer.MIN_VALUE} if its owner is not cached yet.
+     */
+    int partyOf(int entityId) {
+        int owner = owners.get(entityId);
+        return owner == UNKNOWN ? UNKNOWN : registry.getParty(owner);
+    }
+
+    /**
+     * @param entityId  the id of an entity that is not a player
+     * @param owner  the id of the player owning it, or {@link PlayerIds#NONE}
+     */
+    void cacheOwner(int entityId, int owner) {
+        owners.put(entityId, owner);
+    }
+
+    private int findOwner(Entity entity) {
+        for (int depth = 0; entity != null && depth < MAX_DEPTH; depth++) {
+            if (entity instanceof ServerPlayer player) {
+                return PlayerIds.idOf(player);
+            }
+            if (entity instanceof OwnableEntity ownable) {
+                // By UUID, so pets of offline players still count.
+                UUID owner = ownable.getOwnerUUID();
+                return owner != null ? ids.get(owner) : PlayerIds.NONE;
+            }
+            if (entity instanceof Projectile projectile) {
+                entity = projectile.getOwner();
+            } else if (entity instanceof TraceableEntity traceable) {
+                entity = traceable.getOwner();
+            } else {
+                return PlayerIds.NONE;
+            }
+        }
+        return PlayerIds.NONE;
+    }
+
+    @SubscribeEvent
+    public void onEntityLeaveLevel(EntityLeaveLevelEvent event) {
+        if (!event.getLevel().isClientSide()) {
+            owners.remove(event.getEntity().getId());
+        }
+    }
+
+    @SubscribeEvent
+    public void onAnimalTame(AnimalTameEvent event) {
+        owners.remove(event.getAnimal().getId());
+    }
+}
@@ -0,0 +1,343 @@
+package app.sedu.mc.parties.command;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+
+import app.sedu.mc.parties.Parties;
+import app.sedu.mc.parties.compat.FTBTeams;
+import app.sedu.mc.parties.config.CommonSnapshot;
+import app.sedu.mc.parties.config.ConfigReloader;
+import app.sedu.mc.parties.data.PartyInvites;
+import app.sedu.mc.parties.data.PartyRegistry;
+import app.sedu.mc.parties.data.PlayerIds;
+import app.sedu.mc.parties.network.PartiesNetwork;
+import app.sedu.mc.parties.network.ReloadConfigPacket;
+import app.sedu.mc.parties.profile.PartyProfiler;
+import net.minecraft.ChatFormatting;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.commands.arguments.EntityArgument;
+import net.minecraft.network.chat.ClickEvent;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.event.RegisterCommandsEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.config.ModConfig;
+
+/**
+ * The {@code /party} command. Party management subcommands are left out
+ * when FTB Teams handles parties. {@code /party reload} and the operator
+ * only {@code /party profile} are available either way.
+ */
+@Mod.EventBusSubscriber(modid = Parties.MODID)
+public class PartyCommand {
+
+    @SubscribeEvent
+    public static void onRegisterCommands(RegisterCommandsEvent event) {
+        register(event.getDispatcher());
+    }
+
+    private static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
+        LiteralArgumentBuilder<CommandSourceStack> root = Commands.literal("party");
+        if (!FTBTeams.isEnabled()) {
+            root.then(Commands.literal("invite")
+                    .then(Commands.argument("player", EntityArgument.player())
+                        .executes(ctx -> invite(ctx, EntityArgument.getPlayer(ctx, "player")))))
+                .then(Commands.literal("accept")
+                    .executes(ctx -> accept(ctx, null))
+                    .then(Commands.argument("player", EntityArgument.player())
+                        .executes(ctx -> accept(ctx, EntityArgument.getPlayer(ctx, "player")))))
+                .then(Commands.literal("decline")
+                    .executes(ctx -> decline(ctx, null))
+                    .then(Commands.argument("player", EntityArgument.player())
+                        .executes(ctx -> decline(ctx, EntityArgument.getPlayer(ctx, "player")))))
+                .then(Commands.literal("leave")
+                    .executes(PartyCommand::leave))
+                .then(Commands.literal("kick")
+                    .then(Commands.argument("member", StringArgumentType.word())
+                        .executes(ctx -> kick(ctx, StringArgumentType.getString(ctx, "member")))))
+                .then(Commands.literal("leader")
+                    .then(Commands.argument("member", StringArgumentType.word())
+                        .executes(ctx -> leader(ctx, StringArgumentType.getString(ctx, "member")))))
+                .then(Commands.literal("disband")
+                    .executes(PartyCommand::disband));
+        }
+        root.then(Commands.literal("reload")
+            .executes(PartyCommand::reload));
+        root.then(Commands.literal("profile")
+            .requires(source -> source.hasPermission(Commands.LEVEL_GAMEMASTERS))
+            .executes(PartyCommand::profile)
+            .then(Commands.literal("start")
+                .executes(ctx -> profiling(ctx, true)))
+            .then(Commands.literal("stop")
+                .executes(ctx -> profiling(ctx, false)))
+            .then(Commands.literal("reset")
+                .executes(PartyCommand::resetProfile))
+            .then(Commands.literal("dump")
+                .executes(PartyCommand::dumpProfile)));
+        dispatcher.register(root);
+    }
+
+    private static int invite(CommandContext<CommandSourceStack> ctx, ServerPlayer target) throws CommandSyntaxException {
+        ServerPlayer self = ctx.getSource().getPlayerOrException();
+        PartyRegistry registry = Parties.getRegistry();
+        int selfId = PlayerIds.idOf(self);
+        int targetId = PlayerIds.idOf(target);
+        if (selfId == targetId) {
+            return fail(ctx, "You can't invite yourself.");
+        }
+        if (registry.getParty(targetId) != PartyRegistry.NONE) {
+            return fail(ctx, target.getGameProfile().getName() + " is already in a party.");
+        }
+        int party = registry.getParty(selfId);
+        if (party != PartyRegistry.NONE) {
+            if (registry.getLeader(party) != selfId) {
+                return fail(ctx, "Only the party leader can invite players.");
+            }
+            if (registry.isFull(party)) {
+                return fail(ctx, "Your party is full.");
+            }
+        }
+
+        int seconds = CommonSnapshot.get().playerAcceptTimer;
+        Parties.getInvites().add(selfId, targetId, seconds * 20);
+        String name = self.getGameProfile().getName();
+        target.sendSystemMessage(Component.literal(name + " invited you to their party. ")
+            .append(Component.literal("[Accept]").withStyle(style -> style.withColor(ChatFormatting.GREEN)
+                .withClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/party accept " + name))))
+            .append(" ")
+            .append(Component.literal("[Decline]").withStyle(style -> style.withColor(ChatFormatting.RED)
+                .withClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/party decline " + name)))));
+        ctx.getSource().sendSuccess(() -> Component.literal("Invited " + target.getGameProfile().getName()
+            + ". The invite expires in " + seconds + " seconds."), false);
+        return 1;
+    }
+
+    private static int accept(CommandContext<CommandSourceStack> ctx, ServerPlayer inviter) throws CommandSyntaxException {
+        ServerPlayer self = ctx.getSource().getPlayerOrException();
+        PartyRegistry registry = Parties.getRegistry();
+        int selfId = PlayerIds.idOf(self);
+        PartyInvites invites = Parties.getInvites();
+        int inviterId = findInviter(selfId, inviter);
+        if (inviterId == PlayerIds.NONE || !invites.has(inviterId, selfId)) {
+            return fail(ctx, "You have no pending invite.");
+        }
+        // The invite stays pending until the join succeeds, so it can be accepted again.
+        if (registry.getParty(selfId) != PartyRegistry.NONE) {
+            return fail(ctx, "Leave your current party first.");
+        }
+        int party = registry.getParty(inviterId);
+        if (party != PartyRegistry.NONE && registry.getLeader(party) != inviterId) {
+            invites.cancel(inviterId, selfId);
+            return fail(ctx, "That player no longer leads a party.");
+        }
+        if (party != PartyRegistry.NONE && registry.isFull(party)) {
+            return fail(ctx, "That party is full.");
+        }
+
+        if (party == PartyRegistry.NONE) {
+            party = registry.create(inviterId);
+        }
+        if (!registry.join(party, selfId)) {
+            return fail(ctx, "That party is full.");
+        }
+        invites.cancel(inviterId, selfId);
+        tellParty(party, self.getGameProfile().getName() + " joined the party.");
+        return 1;
+    }
+
+    private static int decline(CommandContext<CommandSourceStack> ctx, ServerPlayer inviter) throws CommandSyntaxException {
+        ServerPlayer self = ctx.getSource().getPlayerOrException();
+        int selfId = PlayerIds.idOf(self);
+        int inviterId = findInviter(selfId, inviter);
+        if (inviterId == PlayerIds.NONE || !Parties.getInvites().cancel(inviterId, selfId)) {
+            return fail(ctx, "You have no pending invite.");
+        }
+        tell(inviterId, self.getGameProfile().getName() + " declined your party invite.");
+        ctx.getSource().sendSuccess(() -> Component.literal("Invite declined."), false);
+        return 1;
+    }
+
+    private static int leave(CommandContext<CommandSourceStack> ctx) throws CommandSyntaxException {
+        ServerPlayer self = ctx.getSource().getPlayerOrException();
+        PartyRegistry registry = Parties.getRegistry();
+        int selfId = PlayerIds.idOf(self);
+        int party = registry.getParty(selfId);
+        if (!registry.leave(selfId)) {
+            return fail(ctx, "You are not in a party.");
+        }
+        if (registry.exists(party)) {
+            tellParty(party, self.getGameProfile().getName() + " left the party.");
+        }
+        ctx.getSource().sendSuccess(() -> Component.literal("You left the party."), false);
+        return 1;
+    }
+
+    private static int kick(CommandContext<CommandSourceStack> ctx, String name) throws CommandSyntaxException {
+        int party = leaderParty(ctx);
+        if (party == PartyRegistry.NONE) {
+            return 0;
+        }
+        int member = findMember(party, name);
+        if (member == PlayerIds.NONE || member == PlayerIds.idOf(ctx.getSource().getPlayerOrException())) {
+            return fail(ctx, name + " is not a member you can kick.");
+        }
+        Parties.getRegistry().leave(member);
+        tell(member, "You were kicked from the party.");
+        tellParty(party, name + " was kicked from the party.");
+        return 1;
+    }
+
+    private static int leader(CommandContext<CommandSourceStack> ctx, String name) throws CommandSyntaxException {
+        int party = leaderParty(ctx);
+        if (party == PartyRegistry.NONE) {
+            return 0;
+        }
+        int member = findMember(party, name);
+        if (member == PlayerIds.NONE || !Parties.getRegistry().setLeader(party, member)) {
+            return fail(ctx, name + " is not another member of your party.");
+        }
+        tellParty(party, name + " is now the party leader.");
+        return 1;
+    }
+
+    private static int disband(CommandContext<CommandSourceStack> ctx) throws CommandSyntaxException {
+        int party = leaderParty(ctx);
+        if (party == PartyRegistry.NONE) {
+            return 0;
+        }
+        tellParty(party, "The party was disbanded.");
+        Parties.getRegistry().disband(party);
+        return 1;
+    }
+
+    /**
+     * Reloads the common config for operators, and the client config of the
+     * player running the command.
+     */
+    private static int reload(CommandContext<CommandSourceStack> ctx) {
+        CommandSourceStack source = ctx.getSource();
+        boolean reloaded = false;
+        if (source.hasPermission(Commands.LEVEL_GAMEMASTERS) && ConfigReloader.reload(ModConfig.Type.COMMON)) {
+            source.sendSuccess(() -> Component.literal("Reloaded the party config."), true);
+            reloaded = true;
+        }
+        if (source.getEntity() instanceof ServerPlayer player) {
+            PartiesNetwork.send(player, new ReloadConfigPacket());
+            source.sendSuccess(() -> Component.literal("Reloaded your party client config."), false);
+            reloaded = true;
+        }
+        return reloaded ? 1 : 0;
+    }
+
+    private static int profile(CommandContext<CommandSourceStack> ctx) {
+        PartyProfiler.Report report = PartyProfiler.report();
+        if (report == null) {
+            return fail(ctx, PartyProfiler.isEnabled() ? "No ticks have been profiled yet."
+                : "The profiler is off. Start it with /party profile start.");
+        }
+        CommandSourceStack source = ctx.getSource();
+        source.sendSuccess(() -> Component.literal("Party tick time over the last " + report.getTicks()
+            + " ticks (p50 / p99 / max per tick):").withStyle(ChatFormatting.GOLD), false);
+        for (PartyProfiler.Section section : PartyProfiler.Section.values()) {
+            source.sendSuccess(() -> Component.literal(String.format("  %-9s %8s / %8s / %8s",
+                section.name().toLowerCase(), micros(report.getP50(section)), micros(report.getP99(section)),
+                micros(report.getMax(section)))), false);
+        }
+        for (PartyProfiler.Counter counter : PartyProfiler.Counter.values()) {
+            long total = report.getTotal(counter);
+            source.sendSuccess(() -> Component.literal(String.format("  %-16s %d (%.1f/s)",
+                counter.name().toLowerCase(), total, total * 20.0 / report.getTicks())), false);
+        }
+        return 1;
+    }
+
+    private static String micros(long nanos) {
+        return String.format("%.1fus", nanos / 1000.0);
+    }
+
+    private static int profiling(CommandContext<CommandSourceStack> ctx, boolean enable) {
+        PartyProfiler.setEnabled(enable);
+        ctx.getSource().sendSuccess(() -> Component.literal(enable ? "Party profiler started." : "Party profiler stopped."), true);
+        return 1;
+    }
+
+    private static int resetProfile(CommandContext<CommandSourceStack> ctx) {
+        PartyProfiler.reset();
+        ctx.getSource().sendSuccess(() -> Component.literal("Party profile cleared."), false);
+        return 1;
+    }
+
+    private static int dumpProfile(CommandContext<CommandSourceStack> ctx) {
+        if (PartyProfiler.report() == null) {
+            return fail(ctx, "No ticks have been profiled yet.");
+        }
+        PartyProfiler.dump();
+        ctx.getSource().sendSuccess(() -> Component.literal("Party profile written to the server directory."), false);
+        return 1;
+    }
+
+    /**
+     * Sends a message to both players of an invite that expired unanswered.
+     */
+    public static void onInviteExpired(int inviter, int invitee) {
+        PlayerIds ids = Parties.getPlayerIds();
+        tell(inviter, "Your party invite to " + ids.getName(invitee) + " expired.");
+        tell(invitee, "The party invite from " + ids.getName(inviter) + " expired.");
+    }
+
+    private static int leaderParty(CommandContext<CommandSourceStack> ctx) throws CommandSyntaxException {
+        int selfId = PlayerIds.idOf(ctx.getSource().getPlayerOrException());
+        PartyRegistry registry = Parties.getRegistry();
+        int party = registry.getParty(selfId);
+        if (party == PartyRegistry.NONE) {
+            fail(ctx, "You are not in a party.");
+            return PartyRegistry.NONE;
+        }
+        if (registry.getLeader(party) != selfId) {
+            fail(ctx, "Only the party leader can do that.");
+            return PartyRegistry.NONE;
+        }
+        return party;
+    }
+
+    private static int findInviter(int invitee, ServerPlayer inviter) {
+        return inviter != null ? PlayerIds.idOf(inviter) : Parties.getInvites().getLatestInviter(invitee);
+    }
+
+    private static int findMember(int party, String name) {
+        PartyRegistry registry = Parties.getRegistry();
+        PlayerIds ids = Parties.getPlayerIds();
+        int[] members = registry.getMembers(party);
+        for (int i = 0, n = registry.getSize(party); i < n; i++) {
+            if (name.equalsIgnoreCase(ids.getName(members[i]))) {
+                return members[i];
+            }
+        }
+        return PlayerIds.NONE;
+    }
+
+    private static void tellParty(int party, String message) {
+        PartyRegistry registry = Parties.getRegistry();
+        int[] members = registry.getMembers(party);
+        for (int i = 0, n = registry.getSize(party); i < n; i++) {
+            tell(members[i], message);
+        }
+    }
+
+    private static void tell(int player, String message) {
+        ServerPlayer online = Parties.getPlayerIds().getPlayer(player);
+        if (online != null) {
+            online.sendSystemMessage(Component.literal(message).withStyle(ChatFormatting.YELLOW));
+        }
+    }
+
+    private static int fail(CommandContext<CommandSourceStack> ctx, String message) {
+        ctx.getSource().sendFailure(Component.literal(message));
+        return 0;
+    }
+}
@@ -0,0 +1,24 @@
+package app.sedu.mc.parties.compat;
+
+import app.sedu.mc.parties.config.CommonConfig;
+import net.minecraftforge.fml.ModList;
+
+/**
+ * Decides whether parties come from FTB Teams. Kept apart from
+ * {@link FTBTeamsMirror} so checking does not load any FTB Teams class.
+ */
+public final class FTBTeams {
+    public static final String MODID = "ftbteams";
+
+    private FTBTeams() {}
+
+    /**
+     * Checks whether FTB Teams manages parties: {@code useFTBTeams} is on and
+     * the mod is installed.
+     *
+     * @return true if parties are mirrored from FTB Teams, false otherwise.
+     */
+    public static boolean isEnabled() {
+        return CommonConfig.INSTANCE.getUseFTBTeams() && ModList.get().isLoaded(MODID);
+    }
+}
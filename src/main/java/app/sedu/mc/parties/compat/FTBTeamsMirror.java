@@ -0,0 +1,238 @@
+package app.sedu.mc.parties.compat;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import app.sedu.mc.parties.Parties;
+import app.sedu.mc.parties.data.PartyRegistry;
+import app.sedu.mc.parties.data.PlayerIds;
+import dev.ftb.mods.ftbteams.api.FTBTeamsAPI;
+import dev.ftb.mods.ftbteams.api.Team;
+import dev.ftb.mods.ftbteams.api.event.PlayerJoinedPartyTeamEvent;
+import dev.ftb.mods.ftbteams.api.event.PlayerLeftPartyTeamEvent;
+import dev.ftb.mods.ftbteams.api.event.PlayerTransferredTeamOwnershipEvent;
+import dev.ftb.mods.ftbteams.api.event.TeamCreatedEvent;
+import dev.ftb.mods.ftbteams.api.event.TeamEvent;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+/**
+ * Mirrors FTB Teams party teams into the party registry.
+ * <p>
+ * Every party query the mod makes, from friendly fire to sync recipients,
+ * reads the registry's arrays as usual; nothing on those paths calls into
+ * FTB Teams. The registry is only written here, from FTB Teams' team
+ * events, and every registry listener (sync, vanilla teams, snapshots)
+ * follows along as if the change had been made with {@code /party}.
+ * <p>
+ * An event re-reads the whole team it concerns and brings its party in
+ * line, so a missed or reordered event heals on the team's next change.
+ * The mirror is built once the FTB Teams manager has loaded, and then
+ * checked against it.
+ */
+public class FTBTeamsMirror {
+    private final PlayerIds ids;
+    private final PartyRegistry registry;
+    private final Object2IntOpenHashMap<UUID> partyOfTeam = new Object2IntOpenHashMap<>();
+    private UUID[] teamOfParty = new UUID[16];
+    private final IntOpenHashSet desired = new IntOpenHashSet();
+    private boolean built;
+
+    private final Consumer<TeamCreatedEvent> onCreated = event -> sync(event.getTeam());
+    private final Consumer<TeamEvent> onDeleted = event -> remove(event.getTeam().getId());
+    private final Consumer<PlayerJoinedPartyTeamEvent> onJoined = event -> sync(event.getTeam());
+    private final Consumer<PlayerLeftPartyTeamEvent> onLeft = event -> {
+        if (event.getTeamDeleted()) {
+            remove(event.getTeam().getId());
+        } else {
+            sync(event.getTeam());
+        }
+    };
+    private final Consumer<PlayerTransferredTeamOwnershipEvent> onTransferred = event -> sync(event.getTeam());
+
+    public FTBTeamsMirror(PlayerIds ids, PartyRegistry registry) {
+        this.ids = ids;
+        this.registry = registry;
+        partyOfTeam.defaultReturnValue(PartyRegistry.NONE);
+    }
+
+    /**
+     * Starts following FTB Teams, building the mirror right away if its
+     * manager has loaded.
+     */
+    public void open() {
+        TeamEvent.CREATED.register(onCreated);
+        TeamEvent.DELETED.register(onDeleted);
+        TeamEvent.PLAYER_JOINED_PARTY.register(onJoined);
+        TeamEvent.PLAYER_LEFT_PARTY.register(onLeft);
+        TeamEvent.OWNERSHIP_TRANSFERRED.register(onTransferred);
+        if (FTBTeamsAPI.api().isManagerLoaded()) {
+            build();
+        }
+    }
+
+    public void close() {
+        TeamEvent.CREATED.unregister(onCreated);
+        TeamEvent.DELETED.unregister(onDeleted);
+        TeamEvent.PLAYER_JOINED_PARTY.unregister(onJoined);
+        TeamEvent.PLAYER_LEFT_PARTY.unregister(onLeft);
+        TeamEvent.OWNERSHIP_TRANSFERRED.unregister(onTransferred);
+    }
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.START && !built && FTBTeamsAPI.api().isManagerLoaded()) {
+            build();
+        }
+    }
+
+    private void build() {
+        built = true;
+        int teams = 0;
+        for (Team team : FTBTeamsAPI.api().getManager().getTeams()) {
+            if (team.isPartyTeam()) {
+                sync(team);
+                teams++;
+            }
+        }
+        int problems = check();
+        if (problems == 0) {
+            Parties.info("Mirrored {} FTB Teams parties", teams);
+        } else {
+            Parties.warn("Mirrored {} FTB Teams parties with {} inconsistencies, see above", teams, problems);
+        }
+    }
+
+    /**
+     * Brings a team's party in line with the team's current members and owner.
+     */
+    private void sync(Team team) {
+        if (!team.isPartyTeam()) {
+            return;
+        }
+        UUID teamId = team.getId();
+        Set<UUID> members = team.getMembers();
+        if (members.isEmpty()) {
+            remove(teamId);
+            return;
+        }
+        desired.clear();
+        for (UUID member : members) {
+            desired.add(ids.getOrCreate(member, null));
+        }
+        int owner = ids.getOrCreate(team.getOwner(), null);
+
+        int party = partyOfTeam.getInt(teamId);
+        if (party == PartyRegistry.NONE) {
+            leaveOther(owner, party);
+            party = registry.create(owner);
+            partyOfTeam.put(teamId, party);
+            ensureCapacity(party);
+            teamOfParty[party] = teamId;
+        }
+        // Leaves first, a member removed here may be needed as the leader below.
+        int[] current = registry.getMembers(party);
+        for (int i = registry.getSize(party) - 1; i >= 0; i--) {
+            int member = current[i];
+            if (!desired.contains(member) && member != owner) {
+                registry.leave(member);
+            }
+        }
+        for (int member : desired) {
+            if (registry.getParty(member) != party) {
+                leaveOther(member, party);
+                registry.join(party, member);
+            }
+        }
+        if (desired.contains(owner)) {
+            registry.setLeader(party, owner);
+        } else if (registry.getParty(owner) == party) {
+            registry.leave(owner);
+        }
+    }
+
+    /**
+     * Takes a player out of any party other than the given one. FTB Teams
+     * allows one party per player, so the other party's leave event is only
+     * late and will find nothing left to do.
+     */
+    private void leaveOther(int player, int party) {
+        int other = registry.getParty(player);
+        if (other != PartyRegistry.NONE && other != party) {
+            registry.leave(player);
+            if (!registry.exists(other)) {
+                forget(other);
+            }
+        }
+    }
+
+    private void remove(UUID teamId) {
+        int party = partyOfTeam.removeInt(teamId);
+        if (party != PartyRegistry.NONE) {
+            teamOfParty[party] = null;
+            registry.disband(party);
+        }
+    }
+
+    private void forget(int party) {
+        UUID teamId = teamOfParty[party];
+        if (teamId != null) {
+            partyOfTeam.removeInt(teamId);
+            teamOfParty[party] = null;
+        }
+    }
+
+    /**
+     * Compares the registry with FTB Teams and logs every difference: members
+     * in the wrong party, wrong leaders, and parties without a team.
+     *
+     * @return the number of differences found.
+     */
+    public int check() {
+        int problems = 0;
+        for (Team team : FTBTeamsAPI.api().getManager().getTeams()) {
+            if (!team.isPartyTeam() || team.getMembers().isEmpty()) {
+                continue;
+            }
+            int party = partyOfTeam.getInt(team.getId());
+            if (party == PartyRegistry.NONE || !registry.exists(party)) {
+                Parties.warn("FTB Teams party {} has no mirrored party", team.getId());
+                problems++;
+                continue;
+            }
+            for (UUID member : team.getMembers()) {
+                int id = ids.get(member);
+                if (id == PlayerIds.NONE || registry.getParty(id) != party) {
+                    Parties.warn("Member {} of FTB Teams party {} is not in its mirrored party", member, team.getId());
+                    problems++;
+                }
+            }
+            if (registry.getSize(party) != team.getMembers().size()) {
+                Parties.warn("Mirrored party of FTB Teams party {} has {} members instead of {}", team.getId(),
+                    registry.getSize(party), team.getMembers().size());
+                problems++;
+            }
+            if (ids.get(team.getOwner()) != registry.getLeader(party)) {
+                Parties.warn("Mirrored party of FTB Teams party {} has the wrong leader", team.getId());
+                problems++;
+            }
+        }
+        for (int party = 0, n = registry.getPartyCapacity(); party < n; party++) {
+            if (registry.exists(party) && (party >= teamOfParty.length || teamOfParty[party] == null)) {
+                Parties.warn("Party {} does not belong to an FTB Teams party", party);
+                problems++;
+            }
+        }
+        return problems;
+    }
+
+    private void ensureCapacity(int party) {
+        if (party >= teamOfParty.length) {
+            teamOfParty = Arrays.copyOf(teamOfParty, Math.max(teamOfParty.length * 2, party + 1));
+        }
+    }
+}
@@ -11,6 +11,9 @@ public class ClientConfig {
     private final Supplier<RenderType> playerRenderType;
     private final Supplier<Boolean> forceModelRotation;
     private final Supplier<Integer> rotationOffset;
+    private final Supplier<Integer> headType;
+    private final Supplier<Integer> modelRefreshRate;
+    private final Supplier<Integer> hudBudgetMicros;
 
     public enum RenderType {
         ON, PARTY, OFF
@@ -54,6 +57,20 @@ public class ClientConfig {
             "Negative values make the model face right, while positive values make the model face left.")
             .defineInRange("rotationOffset", -20, -180, 180);
 
+        headType = builder.comment("Changes what the head element of the party frame draws.",
+            "0 - Draws the player's head.",
+            "1 - Draws the player model on your own frame, and heads for the rest of the party.",
+            "2 - Draws the player model for the entire party.")
+            .defineInRange("headType", 0, 0, 2);
+
+        modelRefreshRate = builder.comment("How many times per second models of party members are redrawn.",
+            "Your own frame and the member you are looking at are always redrawn every frame.")
+            .defineInRange("modelRefreshRate", 10, 1, 60);
+
+        hudBudgetMicros = builder.comment("Time (in microseconds) the party frames may take to draw each frame.",
+            "Models are drawn less often, or replaced by heads, while the frames take longer than this.")
+            .defineInRange("hudBudgetMicros", 500, 50, 10000);
+
         builder.pop();
     }
 
@@ -97,4 +114,35 @@ public class ClientConfig {
     public int getRotationOffset() {
         return rotationOffset.get();
     }
+
+    /**
+     * Retrieves the head type of the party frame's head element. 0 draws
+     * heads only, 1 draws the model on the player's own frame, and 2 draws
+     * models for the entire party.
+     *
+     * @return the current head type
+     */
+    public int getHeadType() {
+        return headType.get();
+    }
+
+    /**
+     * Retrieves how many times per second party member models are redrawn
+     * when they are not drawn live.
+     *
+     * @return the model refresh rate in frames per second
+     */
+    public int getModelRefreshRate() {
+        return modelRefreshRate.get();
+    }
+
+    /**
+     * Retrieves the time the party frames may take to draw each frame before
+     * models are drawn at a lower level of detail.
+     *
+     * @return the frame budget in microseconds
+     */
+    public int getHudBudgetMicros() {
+        return hudBudgetMicros.get();
+    }
 }
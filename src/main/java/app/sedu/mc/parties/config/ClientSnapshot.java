@@ -0,0 +1,49 @@
+package app.sedu.mc.parties.config;
+
+/**
+ * An immutable copy of {@link ClientConfig} in plain fields, read by the
+ * HUD every frame. Rebuilt as a whole whenever the config is loaded or
+ * reloaded, see {@link CommonSnapshot}.
+ */
+public final class ClientSnapshot {
+    private static volatile ClientSnapshot current;
+
+    public final boolean endPotionEffects;
+    public final ClientConfig.RenderType playerRenderType;
+    public final boolean forceModelRotation;
+    public final int rotationOffset;
+    public final int headType;
+    public final int modelRefreshRate;
+    public final int hudBudgetMicros;
+
+    private ClientSnapshot(ClientConfig config) {
+        endPotionEffects = config.shouldEndPotionEffects();
+        playerRenderType = config.getPlayerRenderType();
+        forceModelRotation = config.shouldForceModelRotation();
+        rotationOffset = config.getRotationOffset();
+        headType = config.getHeadType();
+        modelRefreshRate = config.getModelRefreshRate();
+        hudBudgetMicros = config.getHudBudgetMicros();
+    }
+
+    /**
+     * Retrieves the snapshot of the config as last loaded.
+     *
+     * @return the current snapshot.
+     */
+    public static ClientSnapshot get() {
+        ClientSnapshot snapshot = current;
+        return snapshot != null ? snapshot : rebuild();
+    }
+
+    /**
+     * Replaces the current snapshot with one read from the config.
+     *
+     * @return the new snapshot.
+     */
+    public static ClientSnapshot rebuild() {
+        ClientSnapshot snapshot = new ClientSnapshot(ClientConfig.INSTANCE);
+        current = snapshot;
+        return snapshot;
+    }
+}
@@ -6,7 +6,10 @@ import java.util.function.Supplier;
 
 import app.sedu.mc.parties.Parties;
 import net.minecraftforge.common.ForgeConfigSpec;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.config.ModConfig;
+import net.minecraftforge.fml.event.config.ModConfigEvent;
 
 // An example config class. This is not required, but it's a good idea to have one to keep your config organized.
 // Demonstrates how to use Forge's config APIs
@@ -17,12 +20,15 @@ public class CommonConfig
     private final Supplier<Integer> playerAcceptTimer;
     private final Supplier<Integer> fastInterval;
     private final Supplier<Integer> slowInterval;
+    private final Supplier<Boolean> adaptiveSync;
+    private final Supplier<Integer> syncByteBudget;
     private final Supplier<Integer> partySize;
     private final Supplier<Boolean> hookVanillaTeams;
     private final Supplier<Boolean> friendlyFire;
     private final Supplier<Boolean> enableXpShare;
     private final Supplier<Boolean> enableGlobalShare;
     private final Supplier<Boolean> ignoreXpCommand;
+    private final Supplier<Integer> shareRange;
     private final Supplier<Boolean> globalModPackets;
     private final Supplier<Boolean> useFTBTeams;
     private final Supplier<Boolean> bossModule;
@@ -31,8 +37,11 @@ public class CommonConfig
     private final Supplier<Integer> playerCountRadius;
     private final Supplier<Double> healthMod;
     private final Supplier<Double> damageMod;
+    private final Supplier<Integer> rescaleInterval;
     private final Supplier<Boolean> scaleLoot;
     private final Supplier<Boolean> scaleSpecialLoot;
+    private final Supplier<Boolean> enableProfiler;
+    private final Supplier<Integer> profilerDumpInterval;
 
     public enum CountType {
         SERVER, DIMENSION, RADIUS, PARTY
@@ -50,6 +59,24 @@ public class CommonConfig
         return builder.build();
     }
 
+    @SubscribeEvent
+    public static void onConfigLoading(ModConfigEvent.Loading event) {
+        if (isOwn(event.getConfig())) {
+            CommonSnapshot.rebuild();
+        }
+    }
+
+    @SubscribeEvent
+    public static void onConfigReloading(ModConfigEvent.Reloading event) {
+        if (isOwn(event.getConfig())) {
+            CommonSnapshot.rebuild();
+        }
+    }
+
+    private static boolean isOwn(ModConfig config) {
+        return config.getType() == ModConfig.Type.COMMON && config.getModId().equals(Parties.MODID);
+    }
+
     private CommonConfig(ForgeConfigSpec.Builder BUILDER) {
         BUILDER.comment(
             "--------------------------------------------------------",
@@ -67,6 +94,14 @@ public class CommonConfig
         slowInterval = BUILDER.comment("Delay (in ticks) for player packet syncing for less frequent items (World Temp, etc)")
             .defineInRange("playerSlowUpdateInterval", 40, 40, 800);
 
+        adaptiveSync = BUILDER.comment("Stretches the sync intervals above when the server is lagging or over the byte budget,",
+            "and shortens them for members who are in combat or at low health.")
+            .define("adaptiveSync", true);
+
+        syncByteBudget = BUILDER.comment("Average bytes per tick party syncing may send to all players combined before intervals are stretched.",
+            "A value of 0 disables the budget. Only used if adaptiveSync is true.")
+            .defineInRange("syncByteBudget", 32768, 0, Integer.MAX_VALUE);
+
         BUILDER.pop();
         BUILDER.push("mechanics");
 
@@ -91,6 +126,10 @@ public class CommonConfig
         ignoreXpCommand = BUILDER.comment("Disables XP Sharing from vanilla commands that give experience *points*.",
         "(/xp add [name] [amount] points)").define("ignoreCommand", true);
 
+        shareRange = BUILDER.comment("Distance (in blocks) a party member must be within from the player gaining XP to receive a share.",
+        "Ignored if globalShare is true.")
+        .defineInRange("shareRange", 64, 1, Integer.MAX_VALUE);
+
         BUILDER.pop();
         BUILDER.push("mod-support");
 
@@ -111,13 +150,14 @@ public class CommonConfig
             "false - Disables the boss module.")
             .define("bossModuleEnabled", false);
 
-        markBosses = BUILDER.comment("A list of entity IDs that the Parties mod treats as bosses. These entities will utilize the scaling of the Boss Module. Changes to this list require a restart.")
+        markBosses = BUILDER.comment("A list of entity IDs that the Parties mod treats as bosses. These entities will utilize the scaling of the Boss Module. Changes to this list require a restart.",
+            "Entries can also be entity type tags (#modpack:bosses) or every entity from a mod (cataclysm:*).")
             .defineList("markBosses", Arrays.asList("minecraft:wither", "minecraft:ender_dragon", "minecraft:warden"), entry -> true);
 
         playerCountType = BUILDER.comment("Changes the way the player count is calculated to adjust the attributes and loot drops of bosses.",
             "SERVER - Counts all online players.",
             "DIMENSION - Counts all players in the same dimension.",
-            "RADIUS - Counts all players in a defined radius from the spawned boss. (Not functional yet)",
+            "RADIUS - Counts all players in a defined radius from the spawned boss.",
             "PARTY - Counts all players in the nearest player's party.")
             .defineEnum("playerCountType", CountType.DIMENSION);
 
@@ -129,8 +169,12 @@ public class CommonConfig
         .defineInRange("healthMod", .25, 0.0, Integer.MAX_VALUE);
 
         damageMod = BUILDER.comment("The damage modifier multiplied by the player count above, as a total multiplier. (.5 * 3 players = 1.5 = 250% damage)",
-        "A value of 0 disables health modifiers.")
-        .defineInRange("healthMod", .25, 0.0, Integer.MAX_VALUE);
+        "A value of 0 disables damage modifiers.")
+        .defineInRange("damageMod", .25, 0.0, Integer.MAX_VALUE);
+
+        rescaleInterval = BUILDER.comment("Minimum time (in seconds) between rescaling a living boss when its player count changes.",
+        "A value of 0 disables rescaling, keeping the scaling a boss spawned with.")
+        .defineInRange("rescaleInterval", 0, 0, 3600);
 
         scaleLoot = BUILDER.comment("If true, scales the loot to the amount of players from the player count above.",
         "Setting this value to false disables this feature.")
@@ -140,6 +184,17 @@ public class CommonConfig
         "Currently determines whether you'd get more Affixed items from Apotheosis mini-bosses.")
         .define("scaleSpecialLoot", true);
 
+        BUILDER.pop();
+        BUILDER.push("profiling");
+
+        enableProfiler = BUILDER.comment("Measures the tick time spent by each party system. View the results with /party profile.",
+        "Can also be toggled at runtime with /party profile start and /party profile stop.")
+        .define("enableProfiler", false);
+
+        profilerDumpInterval = BUILDER.comment("Interval (in seconds) for writing the profile to parties-profile.json in the server directory while profiling.",
+        "A value of 0 disables the file.")
+        .defineInRange("dumpInterval", 0, 0, 3600);
+
         BUILDER.pop();
     }
 
@@ -174,6 +229,26 @@ public class CommonConfig
         return slowInterval.get();
     }
 
+    /**
+     * Retrieves whether the sync intervals adapt to server load and to the
+     * state of each member.
+     * 
+     * @return true if the intervals are adaptive, false otherwise.
+     */
+    public boolean getAdaptiveSync() {
+        return adaptiveSync.get();
+    }
+
+    /**
+     * Retrieves the average number of bytes party syncing may send per tick
+     * before the sync intervals are stretched.
+     * 
+     * @return the budget in bytes, or 0 if there is no budget.
+     */
+    public int getSyncByteBudget() {
+        return syncByteBudget.get();
+    }
+
     /**
      * Retrieves the maximum party size allowed.
      *
@@ -238,6 +313,17 @@ public class CommonConfig
         return ignoreXpCommand.get();
     }
 
+    /**
+     * Retrieves the distance (in blocks) a party member must be within
+     * from the player gaining experience to receive a share. Not used
+     * when global sharing is enabled.
+     * 
+     * @return the share range in blocks.
+     */
+    public int getShareRange() {
+        return shareRange.get();
+    }
+
     /**
      * Retrieves whether mod packets should be sent globally to all party members.
      * <p>
@@ -338,6 +424,16 @@ public class CommonConfig
         return damageMod.get();
     }
 
+    /**
+     * Retrieves the minimum time between rescaling a living boss whose
+     * player count changed.
+     * 
+     * @return the interval in seconds, or 0 if bosses are never rescaled.
+     */
+    public int getRescaleInterval() {
+        return rescaleInterval.get();
+    }
+
     /**
      * Retrieves whether the mod should scale loot drops based on the number
      * of players in the party.
@@ -360,4 +456,23 @@ public class CommonConfig
         return scaleSpecialLoot.get();
     }
 
+    /**
+     * Retrieves whether the profiler starts measuring when the server starts.
+     * 
+     * @return true if profiling is enabled, false otherwise.
+     */
+    public boolean getEnableProfiler() {
+        return enableProfiler.get();
+    }
+
+    /**
+     * Retrieves the interval between writes of the profile to the server
+     * directory while profiling.
+     * 
+     * @return the interval in seconds, or 0 if the profile is never written.
+     */
+    public int getProfilerDumpInterval() {
+        return profilerDumpInterval.get();
+    }
+
 }
@@ -0,0 +1,91 @@
+package app.sedu.mc.parties.config;
+
+import java.util.List;
+
+/**
+ * An immutable copy of {@link CommonConfig} in plain fields.
+ * <p>
+ * Reading a config value goes through the spec's cache and boxes the
+ * result. Code that runs every tick or for every damage event reads
+ * {@link #get()} instead: one volatile read, then plain fields that all
+ * come from the same load of the config. The snapshot is rebuilt whenever
+ * the config is loaded or reloaded, and replaced as a whole.
+ */
+public final class CommonSnapshot {
+    private static volatile CommonSnapshot current;
+
+    public final int playerAcceptTimer;
+    public final int fastInterval;
+    public final int slowInterval;
+    public final boolean adaptiveSync;
+    public final int syncByteBudget;
+    public final int partySize;
+    public final boolean hookVanillaTeams;
+    public final boolean friendlyFire;
+    public final boolean enableXpShare;
+    public final boolean enableGlobalShare;
+    public final boolean ignoreXpCommand;
+    public final int shareRange;
+    public final boolean globalModPackets;
+    public final boolean useFTBTeams;
+    public final boolean bossModule;
+    public final List<String> markBosses;
+    public final CommonConfig.CountType playerCountType;
+    public final int playerCountRadius;
+    public final double healthMod;
+    public final double damageMod;
+    public final int rescaleInterval;
+    public final boolean scaleLoot;
+    public final boolean scaleSpecialLoot;
+    public final boolean enableProfiler;
+    public final int profilerDumpInterval;
+
+    private CommonSnapshot(CommonConfig config) {
+        playerAcceptTimer = config.getPlayerAcceptTimer();
+        fastInterval = config.getFastInterval();
+        slowInterval = config.getSlowInterval();
+        adaptiveSync = config.getAdaptiveSync();
+        syncByteBudget = config.getSyncByteBudget();
+        partySize = config.getPartySize();
+        hookVanillaTeams = config.getHookVanillaTeams();
+        friendlyFire = config.getFriendlyFire();
+        enableXpShare = config.getEnableXpShare();
+        enableGlobalShare = config.getEnableGlobalShare();
+        ignoreXpCommand = config.getIgnoreXpCommand();
+        shareRange = config.getShareRange();
+        globalModPackets = config.getGlobalModPackets();
+        useFTBTeams = config.getUseFTBTeams();
+        bossModule = config.getBossModule();
+        markBosses = List.copyOf(config.getMarkBosses());
+        playerCountType = config.getPlayerCountType();
+        playerCountRadius = config.getPlayerCountRadius();
+        healthMod = config.getHealthMod();
+        damageMod = config.getDamageMod();
+        rescaleInterval = config.getRescaleInterval();
+        scaleLoot = config.getScaleLoot();
+        scaleSpecialLoot = config.getScaleSpecialLoot();
+        enableProfiler = config.getEnableProfiler();
+        profilerDumpInterval = config.getProfilerDumpInterval();
+    }
+
+    /**
+     * Retrieves the snapshot of the config as last loaded.
+     *
+     * @return the current snapshot.
+     */
+    public static CommonSnapshot get() {
+        CommonSnapshot snapshot = current;
+        return snapshot != null ? snapshot : rebuild();
+    }
+
+    /**
+     * Replaces the current snapshot with one read from the config.
+     *
+     * @return the new snapshot.
+     */
+    public static CommonSnapshot rebuild() {
+        CommonSnapshot snapshot = new CommonSnapshot(CommonConfig.INSTANCE);
+        current = snapshot;
+        return snapshot;
+    }
+}
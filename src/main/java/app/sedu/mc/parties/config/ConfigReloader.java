@@ -0,0 +1,48 @@
+package app.sedu.mc.parties.config;
+
+import com.electronwill.nightconfig.core.file.CommentedFileConfig;
+
+import app.sedu.mc.parties.Parties;
+import net.minecraftforge.common.ForgeConfigSpec;
+import net.minecraftforge.fml.config.ConfigTracker;
+import net.minecraftforge.fml.config.ModConfig;
+
+/**
+ * Reloads the mod's config files on demand for {@code /party reload}, for
+ * when the file watcher missed a change or is not running.
+ */
+public final class ConfigReloader {
+    private ConfigReloader() {}
+
+    /**
+     * Re-reads a config file from disk, corrects invalid values and rebuilds
+     * its snapshot.
+     *
+     * @param type  {@link ModConfig.Type#COMMON} or {@link ModConfig.Type#CLIENT}
+     * @return true if the config was reloaded, false if it is not loaded on this side.
+     */
+    public static boolean reload(ModConfig.Type type) {
+        for (ModConfig config : ConfigTracker.INSTANCE.configSets().get(type)) {
+            if (!config.getModId().equals(Parties.MODID) || !(config.getConfigData() instanceof CommentedFileConfig file)) {
+                continue;
+            }
+            file.load();
+            // Same as Forge's file watcher: out of range or missing values are reset before use.
+            ForgeConfigSpec spec = (ForgeConfigSpec) config.getSpec();
+            if (!spec.isCorrect(file)) {
+                Parties.warn("Correcting invalid values in {}", config.getFileName());
+                spec.correct(file);
+                file.save();
+            }
+            spec.afterReload();
+            if (type == ModConfig.Type.COMMON) {
+                CommonSnapshot.rebuild();
+            } else {
+                ClientSnapshot.rebuild();
+            }
+            Parties.info("Reloaded {}", config.getFileName());
+            return true;
+        }
+        return false;
+    }
+}
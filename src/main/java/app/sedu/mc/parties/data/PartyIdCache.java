@@ -0,0 +1,78 @@
+package app.sedu.mc.parties.data;
+
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+/**
+ * Keeps each online player's party id in a field on the player entity, so
+ * checks that run for every attack can compare two ints read straight from
+ * the entities involved.
+ */
+public class PartyIdCache implements PartyRegistry.Listener {
+    private final PlayerIds ids;
+    private final PartyRegistry registry;
+
+    public PartyIdCache(PlayerIds ids, PartyRegistry registry) {
+        this.ids = ids;
+        this.registry = registry;
+    }
+
+    /**
+     * Retrieves the party id cached on a player entity.
+     *
+     * @param player  the player
+     * @return the party id, or {@link PartyRegistry#NONE} if the player is not in a party.
+     */
+    public static int partyOf(ServerPlayer player) {
+        return partyOf((PartyMember) player);
+    }
+
+    /**
+     * Retrieves the party id cached on a member.
+     *
+     * @param member  the player, as a member
+     * @return the party id, or {@link PartyRegistry#NONE} if the player is not in a party.
+     */
+    public static int partyOf(PartyMember member) {
+        return member.parties$getPartyId();
+    }
+
+    @Override
+    public void onCreate(int party, int leader) {
+        set(leader, party);
+    }
+
+    @Override
+    public void onJoin(int party, int player) {
+        set(player, party);
+    }
+
+    @Override
+    public void onLeave(int party, int player) {
+        set(player, PartyRegistry.NONE);
+    }
+
+    private void set(int player, int party) {
+        ServerPlayer online = ids.getPlayer(player);
+        if (online != null) {
+            ((PartyMember) online).parties$setPartyId(party);
+        }
+    }
+
+    // Runs right after PlayerIds has assigned the entity its id.
+    @SubscribeEvent(priority = EventPriority.HIGH)
+    public void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
+        if (event.getEntity() instanceof ServerPlayer player) {
+            ((PartyMember) player).parties$setPartyId(registry.getParty(PlayerIds.idOf(player)));
+        }
+    }
+
+    @SubscribeEvent(priority = EventPriority.HIGH)
+    public void onPlayerRespawn(PlayerEvent.PlayerRespawnEvent event) {
+        if (event.getEntity() instanceof ServerPlayer player) {
+            ((PartyMember) player).parties$setPartyId(registry.getParty(PlayerIds.idOf(player)));
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package app.sedu.mc.parties.data;
+
+import java.util.Arrays;
+
+import app.sedu.mc.parties.profile.PartyProfiler;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import net.minecraft.server.MinecraftServer;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+/**
+ * Pending party invites, expired by a hashed timer wheel.
+ * <p>
+ * The wheel has one slot per tick and is larger than the longest invite
+ * timer, so every invite in a slot expires on the tick the slot comes up.
+ * Each slot is a doubly-linked list threaded through parallel arrays.
+ * Adding and cancelling are O(1), and each tick only walks the invites
+ * that actually expire on it.
+ */
+public class PartyInvites {
+    /** 2048 ticks covers the maximum {@code playerAcceptTimer} of 60 seconds. */
+    private static final int SLOTS = 2048;
+    private static final int MASK = SLOTS - 1;
+    private static final int NIL = -1;
+
+    /**
+     * Receives invites that expired without an answer.
+     */
+    @FunctionalInterface
+    public interface ExpiryListener {
+        void onExpire(int inviter, int invitee);
+    }
+
+    private final MinecraftServer server;
+    private final ExpiryListener listener;
+    private final int[] heads = new int[SLOTS];
+    private final Long2IntOpenHashMap byPair = new Long2IntOpenHashMap();
+
+    private int[] inviters = new int[64];
+    private int[] invitees = new int[64];
+    private int[] slots = new int[64];
+    private int[] next = new int[64];
+    private int[] prev = new int[64];
+    private int freeHead = NIL;
+    private int allocated;
+    private int pending;
+
+    private int[] latest = new int[64];
+
+    public PartyInvites(MinecraftServer server, ExpiryListener listener) {
+        this.server = server;
+        this.listener = listener;
+        Arrays.fill(heads, NIL);
+        Arrays.fill(latest, NIL);
+        byPair.defaultReturnValue(NIL);
+    }
+
+    /**
+     * Adds an invite, replacing any pending invite between the same players.
+     *
+     * @param inviter  the id of the inviting player
+     * @param invitee  the id of the invited player
+     * @param ticks  the number of ticks until the invite expires, at most 2048
+     */
+    public void add(int inviter, int invitee, int ticks) {
+        cancel(inviter, invitee);
+        int invite = allocate();
+        int slot = (server.getTickCount() + Math.min(ticks, SLOTS - 1)) & MASK;
+        inviters[invite] = inviter;
+        invitees[invite] = invitee;
+        slots[invite] = slot;
+        prev[invite] = NIL;
+        next[invite] = heads[slot];
+        if (heads[slot] != NIL) {
+            prev[heads[slot]] = invite;
+        }
+        heads[slot] = invite;
+        byPair.put(key(inviter, invitee), invite);
+        if (invitee >= latest.length) {
+            int old = latest.length;
+            latest = Arrays.copyOf(latest, Math.max(old * 2, invitee + 1));
+            Arrays.fill(latest, old, latest.length, NIL);
+        }
+        latest[invitee] = inviter;
+        pending++;
+    }
+
+    /**
+     * Removes a pending invite.
+     *
+     * @return true if the invite was pending, false otherwise.
+     */
+    public boolean cancel(int inviter, int invitee) {
+        int invite = byPair.remove(key(inviter, invitee));
+        if (invite == NIL) {
+            return false;
+        }
+        unlink(invite);
+        release(invite);
+        return true;
+    }
+
+    /**
+     * Checks whether an invite is pending.
+     */
+    public boolean has(int inviter, int invitee) {
+        return byPair.containsKey(key(inviter, invitee));
+    }
+
+    /**
+     * Retrieves the player who most recently invited the given player, if
+     * that invite is still pending.
+     *
+     * @param invitee  the id of the invited player
+     * @return the inviter's id, or {@link PlayerIds#NONE} if there is no pending invite.
+     */
+    public int getLatestInviter(int invitee) {
+        if (invitee >= latest.length || latest[invitee] == NIL) {
+            return PlayerIds.NONE;
+        }
+        int inviter = latest[invitee];
+        return has(inviter, invitee) ? inviter : PlayerIds.NONE;
+    }
+
+    /**
+     * @return the number of pending invites.
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END) {
+            return;
+        }
+        int slot = server.getTickCount() & MASK;
+        int invite = heads[slot];
+        if (invite == NIL) {
+            return;
+        }
+        heads[slot] = NIL;
+        long start = PartyProfiler.begin();
+        while (invite != NIL) {
+            int following = next[invite];
+            int inviter = inviters[invite];
+            int invitee = invitees[invite];
+            byPair.remove(key(inviter, invitee));
+            release(invite);
+            listener.onExpire(inviter, invitee);
+            PartyProfiler.count(PartyProfiler.Counter.INVITE_EXPIRIES, 1);
+            invite = following;
+        }
+        PartyProfiler.end(PartyProfiler.Section.INVITES, start);
+    }
+
+    private void unlink(int invite) {
+        if (prev[invite] != NIL) {
+            next[prev[invite]] = next[invite];
+        } else {
+            heads[slots[invite]] = next[invite];
+        }
+        if (next[invite] != NIL) {
+            prev[next[invite]] = prev[invite];
+        }
+    }
+
+    private int allocate() {
+        if (freeHead != NIL) {
+            int invite = freeHead;
+            freeHead = next[invite];
+            return invite;
+        }
+        if (allocated == inviters.length) {
+            int capacity = allocated * 2;
+            inviters = Arrays.copyOf(inviters, capacity);
+            invitees = Arrays.copyOf(invitees, capacity);
+            slots = Arrays.copyOf(slots, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+        }
+        return allocated++;
+    }
+
+    private void release(int invite) {
+        next[invite] = freeHead;
+        freeHead = invite;
+        pending--;
+    }
+
+    private static long key(int inviter, int invitee) {
+        return (long) invitee << 32 | (inviter & 0xFFFFFFFFL);
+    }
+}
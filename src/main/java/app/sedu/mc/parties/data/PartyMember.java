@@ -0,0 +1,19 @@
+package app.sedu.mc.parties.data;
+
+/**
+ * Implemented on {@link net.minecraft.server.level.ServerPlayer} by mixin so
+ * each player entity carries its {@link PlayerIds} id and its party id. This
+ * turns the lookups done by hot paths into field reads.
+ */
+public interface PartyMember {
+    int parties$getMemberId();
+
+    void parties$setMemberId(int id);
+
+    /**
+     * @return the player's party id as kept by {@link PartyIdCache}, or {@link PartyRegistry#NONE}.
+     */
+    int parties$getPartyId();
+
+    void parties$setPartyId(int party);
+}
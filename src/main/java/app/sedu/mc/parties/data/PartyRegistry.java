@@ -0,0 +1,326 @@
+package app.sedu.mc.parties.data;
+
+import java.util.Arrays;
+import java.util.function.IntSupplier;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.server.level.ServerPlayer;
+
+/**
+ * Server-side table of parties, keyed entirely by int ids.
+ * <p>
+ * Players are referenced by their {@link PlayerIds} id and parties by a
+ * party id handed out from a free list. {@link #getParty(int)} is a single
+ * array read, and members can be iterated without allocating:
+ * <pre>{@code
+ * int[] members = registry.getMembers(party);
+ * for (int i = 0, n = registry.getSize(party); i < n; i++) { ... members[i] ... }
+ * }</pre>
+ * The registry must only be touched from the server thread.
+ */
+public class PartyRegistry {
+    public static final int NONE = -1;
+
+    /**
+     * Receives every membership change. All callbacks run on the server thread
+     * after the registry has been updated.
+     */
+    public interface Listener {
+        default void onCreate(int party, int leader) {}
+
+        default void onJoin(int party, int player) {}
+
+        /**
+         * Called when a player leaves a party, including when it is disbanded.
+         */
+        default void onLeave(int party, int player) {}
+
+        /**
+         * Called after every member has left, right before the party id is freed.
+         */
+        default void onDisband(int party) {}
+
+        default void onLeaderChange(int party, int leader) {}
+    }
+
+    private static final int INITIAL_MEMBERS = 8;
+
+    private final IntSupplier maxSize;
+    private Listener[] listeners = new Listener[0];
+
+    private int[] partyOf = new int[64];
+
+    private int[][] members = new int[16][];
+    private int[] sizes = new int[16];
+    private int[] leaders = new int[16];
+    private int partyCapacity;
+    private int partyCount;
+    private final IntArrayList free = new IntArrayList();
+
+    /**
+     * @param maxSize  supplies the maximum party size, read whenever a member joins
+     */
+    public PartyRegistry(IntSupplier maxSize) {
+        this.maxSize = maxSize;
+        Arrays.fill(partyOf, NONE);
+        Arrays.fill(leaders, NONE);
+    }
+
+    public void addListener(Listener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    /**
+     * Retrieves the party of a player.
+     *
+     * @param player  the player id
+     * @return the party id, or {@link #NONE} if the player is not in a party.
+     */
+    public int getParty(int player) {
+        return player >= 0 && player < partyOf.length ? partyOf[player] : NONE;
+    }
+
+    /**
+     * Retrieves the party of an online player through the id cached on the entity.
+     *
+     * @param player  the player
+     * @return the party id, or {@link #NONE} if the player is not in a party.
+     */
+    public int getParty(ServerPlayer player) {
+        return getParty(PlayerIds.idOf(player));
+    }
+
+    /**
+     * Checks whether two players share a party.
+     *
+     * @return true if both players are in the same party, false otherwise.
+     */
+    public boolean areMates(int a, int b) {
+        int party = getParty(a);
+        return party != NONE && party == getParty(b);
+    }
+
+    /**
+     * Retrieves the member array of a party. Only the first {@link #getSize(int)}
+     * entries are valid, and the array must not be modified or kept.
+     *
+     * @param party  the party id
+     * @return the member ids.
+     */
+    public int[] getMembers(int party) {
+        return members[party];
+    }
+
+    public int getSize(int party) {
+        return sizes[party];
+    }
+
+    public int getLeader(int party) {
+        return leaders[party];
+    }
+
+    public boolean exists(int party) {
+        return party >= 0 && party < partyCapacity && leaders[party] != NONE;
+    }
+
+    public boolean isFull(int party) {
+        return sizes[party] >= maxSize.getAsInt();
+    }
+
+    /**
+     * @return the number of existing parties.
+     */
+    public int getPartyCount() {
+        return partyCount;
+    }
+
+    /**
+     * @return one past the highest party id handed out. Valid ids are
+     * {@code [0, getPartyCapacity())} for which {@link #exists(int)} is true.
+     */
+    public int getPartyCapacity() {
+        return partyCapacity;
+    }
+
+    /**
+     * Creates a party with the player as its leader and only member.
+     *
+     * @param leader  the player id of the leader
+     * @return the new party id, or {@link #NONE} if the player is already in a party.
+     */
+    public int create(int leader) {
+        if (getParty(leader) != NONE) {
+            return NONE;
+        }
+        int party;
+        if (free.isEmpty()) {
+            party = partyCapacity;
+            ensurePartyCapacity(party);
+        } else {
+            party = free.popInt();
+        }
+        init(party, leader);
+        return party;
+    }
+
+    /**
+     * Creates a party under a fixed id. Used when restoring saved parties.
+     *
+     * @return false if the party already exists or the player is already in a party.
+     */
+    boolean create(int party, int leader) {
+        if (exists(party) || getParty(leader) != NONE) {
+            return false;
+        }
+        ensurePartyCapacity(party);
+        free.rem(party);
+        init(party, leader);
+        return true;
+    }
+
+    private void init(int party, int leader) {
+        ensurePlayerCapacity(leader);
+        if (members[party] == null) {
+            members[party] = new int[Math.min(INITIAL_MEMBERS, maxSize.getAsInt())];
+        }
+        members[party][0] = leader;
+        sizes[party] = 1;
+        leaders[party] = leader;
+        partyOf[leader] = party;
+        partyCount++;
+        for (Listener listener : listeners) {
+            listener.onCreate(party, leader);
+        }
+    }
+
+    /**
+     * Adds a player to a party.
+     *
+     * @param party  the party id
+     * @param player  the player id
+     * @return true if the player joined, false if the party is full or the player is already in a party.
+     */
+    public boolean join(int party, int player) {
+        if (!exists(party) || getParty(player) != NONE || isFull(party)) {
+            return false;
+        }
+        ensurePlayerCapacity(player);
+        int size = sizes[party];
+        if (size == members[party].length) {
+            members[party] = Arrays.copyOf(members[party], Math.min(size * 2, maxSize.getAsInt()));
+        }
+        members[party][size] = player;
+        sizes[party] = size + 1;
+        partyOf[player] = party;
+        for (Listener listener : listeners) {
+            listener.onJoin(party, player);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a player from its party. The leader is passed on to the next
+     * member, and a party left empty is disbanded.
+     *
+     * @param player  the player id
+     * @return true if the player left a party, false if the player was not in one.
+     */
+    public boolean leave(int player) {
+        int party = getParty(player);
+        if (party == NONE) {
+            return false;
+        }
+        remove(party, player);
+        if (sizes[party] == 0) {
+            free(party);
+        } else if (leaders[party] == player) {
+            setLeader(party, members[party][0]);
+        }
+        return true;
+    }
+
+    /**
+     * Removes every member from a party and frees its id.
+     *
+     * @param party  the party id
+     */
+    public void disband(int party) {
+        if (!exists(party)) {
+            return;
+        }
+        while (sizes[party] > 0) {
+            remove(party, members[party][sizes[party] - 1]);
+        }
+        free(party);
+    }
+
+    /**
+     * Passes the leadership of a party to one of its members.
+     *
+     * @return true if the leader changed, false if the player is not a member.
+     */
+    public boolean setLeader(int party, int player) {
+        if (getParty(player) != party || leaders[party] == player) {
+            return false;
+        }
+        leaders[party] = player;
+        for (Listener listener : listeners) {
+            listener.onLeaderChange(party, player);
+        }
+        return true;
+    }
+
+    private void remove(int party, int player) {
+        int[] list = members[party];
+        int size = sizes[party];
+        for (int i = 0; i < size; i++) {
+            if (list[i] == player) {
+                // Keep join order so the oldest member inherits leadership.
+                System.arraycopy(list, i + 1, list, i, size - i - 1);
+                break;
+            }
+        }
+        sizes[party] = size - 1;
+        partyOf[player] = NONE;
+        for (Listener listener : listeners) {
+            listener.onLeave(party, player);
+        }
+    }
+
+    private void free(int party) {
+        for (Listener listener : listeners) {
+            listener.onDisband(party);
+        }
+        leaders[party] = NONE;
+        partyCount--;
+        free.push(party);
+    }
+
+    private void ensurePlayerCapacity(int player) {
+        if (player < partyOf.length) {
+            return;
+        }
+        int old = partyOf.length;
+        partyOf = Arrays.copyOf(partyOf, Math.max(old * 2, player + 1));
+        Arrays.fill(partyOf, old, partyOf.length, NONE);
+    }
+
+    private void ensurePartyCapacity(int party) {
+        if (party >= members.length) {
+            int old = members.length;
+            int capacity = Math.max(old * 2, party + 1);
+            members = Arrays.copyOf(members, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            leaders = Arrays.copyOf(leaders, capacity);
+            Arrays.fill(leaders, old, capacity, NONE);
+        }
+        if (party >= partyCapacity) {
+            // Ids skipped over by a restore become free.
+            for (int id = partyCapacity; id < party; id++) {
+                free.push(id);
+            }
+            partyCapacity = party + 1;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package app.sedu.mc.parties.data;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An immutable view of every party at one point in time, safe to read from
+ * any thread.
+ * <p>
+ * The server thread publishes a new snapshot at the end of each tick that
+ * changed membership. Readers call {@link #current()} once and keep using
+ * the returned snapshot for a consistent view; nothing is locked or copied
+ * on read. Parties that did not change are shared between snapshots.
+ * <p>
+ * Players are looked up by UUID through a map shared by every snapshot of
+ * a server, which only ever gains entries, into a table indexed by player
+ * id. The table is split into chunks of {@link #CHUNK_SIZE} players, and a
+ * new snapshot copies only the chunks holding a changed member.
+ */
+public final class PartySnapshot {
+    public static final PartySnapshot EMPTY = new PartySnapshot(0, new Party[0], Map.of(), new Party[0][]);
+
+    static final int CHUNK_BITS = 8;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private static final AtomicReference<PartySnapshot> CURRENT = new AtomicReference<>(EMPTY);
+
+    /**
+     * A single party. Members are listed leader first.
+     */
+    public static final class Party {
+        private final int id;
+        private final List<UUID> members;
+        private final List<String> names;
+
+        Party(int id, UUID[] members, String[] names) {
+            this.id = id;
+            this.members = Collections.unmodifiableList(Arrays.asList(members));
+            this.names = Collections.unmodifiableList(Arrays.asList(names));
+        }
+
+        /**
+         * @return the party id, which may be reused once the party is disbanded.
+         */
+        public int getId() {
+            return id;
+        }
+
+        public UUID getLeader() {
+            return members.get(0);
+        }
+
+        /**
+         * @return the members' UUIDs, leader first.
+         */
+        public List<UUID> getMembers() {
+            return members;
+        }
+
+        /**
+         * @return the members' last known names, in the same order as {@link #getMembers()}.
+         */
+        public List<String> getNames() {
+            return names;
+        }
+
+        public boolean contains(UUID player) {
+            return members.contains(player);
+        }
+    }
+
+    private final long version;
+    private final Party[] parties;
+    private final Map<UUID, Integer> memberIds;
+    private final Party[][] byMember;
+    private final List<Party> list;
+
+    /**
+     * @param memberIds  player ids by UUID, shared and only added to
+     * @param byMember  each player's party by player id, in chunks of {@link #CHUNK_SIZE}
+     */
+    PartySnapshot(long version, Party[] parties, Map<UUID, Integer> memberIds, Party[][] byMember) {
+        this.version = version;
+        this.parties = parties;
+        this.memberIds = memberIds;
+        this.byMember = byMember;
+        this.list = Arrays.stream(parties).filter(party -> party != null).toList();
+    }
+
+    /**
+     * Retrieves the most recently published snapshot.
+     *
+     * @return the current snapshot, or {@link #EMPTY} if no server is running.
+     */
+    public static PartySnapshot current() {
+        return CURRENT.get();
+    }
+
+    static void publish(PartySnapshot snapshot) {
+        CURRENT.set(snapshot);
+    }
+
+    /**
+     * @return a number that increases with every published snapshot.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param player  the player's UUID
+     * @return the player's party, or null if the player is not in a party.
+     */
+    public Party getParty(UUID player) {
+        Integer id = memberIds.get(player);
+        return id != null ? getParty(id) : null;
+    }
+
+    Party getParty(int member) {
+        int chunk = member >>> CHUNK_BITS;
+        if (chunk >= byMember.length || byMember[chunk] == null) {
+            return null;
+        }
+        return byMember[chunk][member & (CHUNK_SIZE - 1)];
+    }
+
+    /**
+     * @param id  the party id
+     * @return the party, or null if no party has the id.
+     */
+    public Party getPartyById(int id) {
+        return id >= 0 && id < parties.length ? parties[id] : null;
+    }
+
+    /**
+     * @return every party, ordered by id.
+     */
+    public List<Party> getParties() {
+        return list;
+    }
+
+    public boolean areMates(UUID a, UUID b) {
+        Party party = getParty(a);
+        return party != null && party == getParty(b);
+    }
+
+    Party[] parties() {
+        return parties;
+    }
+
+    Map<UUID, Integer> memberIds() {
+        return memberIds;
+    }
+
+    Party[][] byMember() {
+        return byMember;
+    }
+}
@@ -0,0 +1,165 @@
+package app.sedu.mc.parties.data;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+/**
+ * Publishes {@link PartySnapshot}s. Membership changes only mark their party
+ * dirty; the snapshot is rebuilt once at the end of the tick, reusing every
+ * party that was not touched and every chunk of the player table without a
+ * changed member, so the cost follows the size of the change.
+ */
+public class PartySnapshotPublisher implements PartyRegistry.Listener {
+    private final PlayerIds ids;
+    private final PartyRegistry registry;
+    private final IntArrayList dirty = new IntArrayList();
+    private boolean[] isDirty = new boolean[16];
+    private final Map<UUID, Integer> memberIds = new ConcurrentHashMap<>();
+    private int[] chunkStamp = new int[16];
+    private int stamp;
+
+    public PartySnapshotPublisher(PlayerIds ids, PartyRegistry registry) {
+        this.ids = ids;
+        this.registry = registry;
+    }
+
+    @Override
+    public void onCreate(int party, int leader) {
+        markDirty(party);
+    }
+
+    @Override
+    public void onJoin(int party, int player) {
+        markDirty(party);
+    }
+
+    @Override
+    public void onLeave(int party, int player) {
+        markDirty(party);
+    }
+
+    @Override
+    public void onDisband(int party) {
+        markDirty(party);
+    }
+
+    @Override
+    public void onLeaderChange(int party, int leader) {
+        markDirty(party);
+    }
+
+    private void markDirty(int party) {
+        if (party >= isDirty.length) {
+            isDirty = Arrays.copyOf(isDirty, Math.max(isDirty.length * 2, party + 1));
+        }
+        if (!isDirty[party]) {
+            isDirty[party] = true;
+            dirty.add(party);
+        }
+    }
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.END && !dirty.isEmpty()) {
+            publish();
+        }
+    }
+
+    /**
+     * Builds and publishes a snapshot from the dirty parties and the previous snapshot.
+     */
+    public void publish() {
+        PartySnapshot previous = PartySnapshot.current();
+        PartySnapshot.Party[] parties = Arrays.copyOf(previous.parties(),
+            Math.max(previous.parties().length, registry.getPartyCapacity()));
+        // Chunks are copied on their first change, the rest stay shared with the previous snapshot.
+        PartySnapshot.Party[][] byMember = previous.memberIds() == memberIds ? previous.byMember()
+            : new PartySnapshot.Party[0][];
+        byMember = Arrays.copyOf(byMember, Math.max(byMember.length,
+            (ids.size() + PartySnapshot.CHUNK_SIZE - 1) >>> PartySnapshot.CHUNK_BITS));
+        if (chunkStamp.length < byMember.length) {
+            chunkStamp = Arrays.copyOf(chunkStamp, byMember.length * 2);
+        }
+        stamp++;
+
+        // Every old membership is removed before any new one is added, since
+        // a player may have moved between two dirty parties.
+        for (int i = 0, n = dirty.size(); i < n; i++) {
+            PartySnapshot.Party old = parties[dirty.getInt(i)];
+            if (old != null) {
+                for (UUID member : old.getMembers()) {
+                    int id = ids.get(member);
+                    if (id != PlayerIds.NONE && get(byMember, id) == old) {
+                        set(byMember, id, null);
+                    }
+                }
+            }
+        }
+        for (int i = 0, n = dirty.size(); i < n; i++) {
+            int id = dirty.getInt(i);
+            isDirty[id] = false;
+            PartySnapshot.Party party = registry.exists(id) ? build(id) : null;
+            parties[id] = party;
+            if (party != null) {
+                int[] members = registry.getMembers(id);
+                for (int j = 0, size = registry.getSize(id); j < size; j++) {
+                    memberIds.putIfAbsent(ids.getUuid(members[j]), members[j]);
+                    set(byMember, members[j], party);
+                }
+            }
+        }
+        dirty.clear();
+
+        int length = parties.length;
+        while (length > 0 && parties[length - 1] == null) {
+            length--;
+        }
+        PartySnapshot.publish(new PartySnapshot(previous.getVersion() + 1, Arrays.copyOf(parties, length),
+            memberIds, byMember));
+    }
+
+    private static PartySnapshot.Party get(PartySnapshot.Party[][] byMember, int member) {
+        PartySnapshot.Party[] chunk = byMember[member >>> PartySnapshot.CHUNK_BITS];
+        return chunk != null ? chunk[member & (PartySnapshot.CHUNK_SIZE - 1)] : null;
+    }
+
+    private void set(PartySnapshot.Party[][] byMember, int member, PartySnapshot.Party party) {
+        int index = member >>> PartySnapshot.CHUNK_BITS;
+        if (chunkStamp[index] != stamp) {
+            chunkStamp[index] = stamp;
+            PartySnapshot.Party[] chunk = byMember[index];
+            byMember[index] = chunk != null ? chunk.clone() : new PartySnapshot.Party[PartySnapshot.CHUNK_SIZE];
+        }
+        byMember[index][member & (PartySnapshot.CHUNK_SIZE - 1)] = party;
+    }
+
+    private PartySnapshot.Party build(int party) {
+        int[] members = registry.getMembers(party);
+        int size = registry.getSize(party);
+        int leader = registry.getLeader(party);
+        UUID[] uuids = new UUID[size];
+        String[] names = new String[size];
+        uuids[0] = ids.getUuid(leader);
+        names[0] = ids.getName(leader);
+        for (int i = 0, j = 1; i < size; i++) {
+            if (members[i] != leader) {
+                uuids[j] = ids.getUuid(members[i]);
+                names[j++] = ids.getName(members[i]);
+            }
+        }
+        return new PartySnapshot.Party(party, uuids, names);
+    }
+
+    /**
+     * Publishes {@link PartySnapshot#EMPTY}. Called when the server stops.
+     */
+    public void close() {
+        PartySnapshot.publish(PartySnapshot.EMPTY);
+    }
+}
@@ -0,0 +1,429 @@
+package app.sedu.mc.parties.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import app.sedu.mc.parties.Parties;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.level.storage.LevelResource;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+/**
+ * Persists the party registry as a snapshot plus an append-only journal.
+ * <p>
+ * Every membership change is encoded on the server thread into a small
+ * fixed-size record and appended to {@code data/parties.journal} by a
+ * background writer. Periodically the registry is encoded into a new
+ * {@code data/parties.dat} snapshot, which the writer swaps in atomically
+ * before truncating the journal. Loading reads the snapshot and replays the
+ * journal on top of it. A torn record at the end of the journal, left by a
+ * crash, is ignored.
+ * <p>
+ * Each snapshot carries a generation, and the journal starts with the
+ * generation of the snapshot its records apply to. A crash after a new
+ * snapshot was swapped in but before the journal was truncated leaves a
+ * journal of an older generation, whose records the snapshot already
+ * contains; it is skipped instead of replayed.
+ * <p>
+ * If either file cannot be read, both are moved aside with a
+ * {@code .corrupt} suffix before anything is written, and whatever could
+ * be loaded is saved as a new snapshot. If they cannot be moved, nothing
+ * is written for the rest of the session.
+ */
+public class PartyStore implements PartyRegistry.Listener {
+    private static final int MAGIC = 0x50525459;
+    private static final int JOURNAL_MAGIC = 0x5052544A;
+    private static final int VERSION = 2;
+
+    private static final byte CREATE = 0;
+    private static final byte JOIN = 1;
+    private static final byte LEAVE = 2;
+    private static final byte DISBAND = 3;
+    private static final byte LEADER = 4;
+    private static final int RECORD_SIZE = 1 + 4 + 16;
+    private static final int HEADER_SIZE = 4 + 8;
+
+    /** Compact after this many journal records... */
+    private static final int COMPACT_RECORDS = 4096;
+    /** ...or after this many ticks with at least one record. */
+    private static final int COMPACT_TICKS = 20 * 60 * 5;
+
+    private final IntSupplier ticks;
+    private final PlayerIds ids;
+    private final PartyRegistry registry;
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "Parties Storage");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private FileChannel journal;
+    private int records;
+    private int lastCompaction;
+    /** The generation of the newest snapshot, which journal records apply on top of. */
+    private long generation;
+    /** Set when the saved files could not be read or moved aside, so they must not be overwritten. */
+    private boolean readOnly;
+
+    public PartyStore(MinecraftServer server, PlayerIds ids, PartyRegistry registry) {
+        this(server.getWorldPath(LevelResource.ROOT).resolve("data"), server::getTickCount, ids, registry);
+    }
+
+    /**
+     * @param dir  the directory to keep the snapshot and journal in
+     * @param ticks  supplies the current server tick
+     */
+    PartyStore(Path dir, IntSupplier ticks, PlayerIds ids, PartyRegistry registry) {
+        this.ticks = ticks;
+        this.ids = ids;
+        this.registry = registry;
+        this.snapshotFile = dir.resolve(Parties.MODID + ".dat");
+        this.journalFile = dir.resolve(Parties.MODID + ".journal");
+    }
+
+    /**
+     * Loads the snapshot and replays the journal into the registry. Must be
+     * called before the store is added as a registry listener.
+     */
+    public void load() {
+        boolean current = false;
+        boolean damaged = false;
+        try {
+            if (Files.exists(snapshotFile)) {
+                try (DataInputStream in = new DataInputStream(Files.newInputStream(snapshotFile))) {
+                    readSnapshot(in);
+                }
+            }
+            if (Files.exists(journalFile)) {
+                try (DataInputStream in = new DataInputStream(Files.newInputStream(journalFile))) {
+                    current = readJournalHeader(in);
+                    if (current) {
+                        records = replay(in);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Parties.err(e, "Failed to load parties from {}", snapshotFile.getParent());
+            damaged = true;
+        }
+        Parties.info("Loaded {} parties ({} journal records)", registry.getPartyCount(), records);
+        if (damaged) {
+            try {
+                moveAside(snapshotFile);
+                moveAside(journalFile);
+            } catch (IOException e) {
+                Parties.err(e, "Failed to move unreadable party data aside, parties will not be saved");
+                readOnly = true;
+                return;
+            }
+            current = false;
+        }
+
+        // A missing or stale journal is started over for the snapshot's generation,
+        // a current one is cut after its last whole record so appends stay aligned.
+        long valid = current ? HEADER_SIZE + (long) records * RECORD_SIZE : -1;
+        long header = generation;
+        writer.execute(() -> {
+            try {
+                Files.createDirectories(journalFile.getParent());
+                journal = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+                if (valid < 0) {
+                    resetJournal(header);
+                } else {
+                    journal.truncate(valid);
+                }
+            } catch (IOException e) {
+                Parties.err(e, "Failed to open party journal {}", journalFile);
+            }
+        });
+        if (records > 0 || damaged) {
+            // After moving damaged files aside, the new journal needs a snapshot to apply to.
+            compact();
+        }
+    }
+
+    /**
+     * Renames a file that could not be read, keeping any earlier copies.
+     */
+    private static void moveAside(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        Path target = file.resolveSibling(file.getFileName() + ".corrupt");
+        for (int i = 1; Files.exists(target); i++) {
+            target = file.resolveSibling(file.getFileName() + ".corrupt" + i);
+        }
+        Files.move(file, target);
+        Parties.warn("Moved unreadable party data to {}", target);
+    }
+
+    private void readSnapshot(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Unrecognized party snapshot " + snapshotFile);
+        }
+        generation = in.readLong();
+        int parties = in.readInt();
+        for (int i = 0; i < parties; i++) {
+            int party = in.readInt();
+            int size = in.readInt();
+            for (int j = 0; j < size; j++) {
+                UUID uuid = new UUID(in.readLong(), in.readLong());
+                String name = in.readUTF();
+                int player = ids.getOrCreate(uuid, name.isEmpty() ? null : name);
+                if (j == 0) {
+                    registry.create(party, player);
+                } else {
+                    registry.join(party, player);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the journal header.
+     *
+     * @return true if the journal's records apply on top of the loaded snapshot.
+     */
+    private boolean readJournalHeader(DataInputStream in) throws IOException {
+        int magic;
+        long journalGeneration;
+        try {
+            magic = in.readInt();
+            journalGeneration = in.readLong();
+        } catch (EOFException e) {
+            return false;
+        }
+        if (magic != JOURNAL_MAGIC) {
+            throw new IOException("Unrecognized party journal " + journalFile);
+        }
+        if (journalGeneration != generation) {
+            Parties.info("Skipping party journal of generation {}, the snapshot is at {}", journalGeneration,
+                generation);
+            return false;
+        }
+        return true;
+    }
+
+    private int replay(DataInputStream data) throws IOException {
+        byte[] record = new byte[RECORD_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        int count = 0;
+        while (true) {
+            try {
+                data.readFully(record);
+            } catch (EOFException e) {
+                return count;
+            }
+            byte op = buffer.get(0);
+            int party = buffer.getInt(1);
+            int player = op == DISBAND
+                ? PlayerIds.NONE
+                : ids.getOrCreate(new UUID(buffer.getLong(5), buffer.getLong(13)), null);
+            switch (op) {
+                case CREATE -> registry.create(party, player);
+                case JOIN -> registry.join(party, player);
+                case LEAVE -> registry.leave(player);
+                case DISBAND -> registry.disband(party);
+                case LEADER -> registry.setLeader(party, player);
+                default -> throw new IOException("Corrupt party journal record " + count);
+            }
+            count++;
+        }
+    }
+
+    @Override
+    public void onCreate(int party, int leader) {
+        append(CREATE, party, leader);
+    }
+
+    @Override
+    public void onJoin(int party, int player) {
+        append(JOIN, party, player);
+    }
+
+    @Override
+    public void onLeave(int party, int player) {
+        append(LEAVE, party, player);
+    }
+
+    @Override
+    public void onDisband(int party) {
+        append(DISBAND, party, PlayerIds.NONE);
+    }
+
+    @Override
+    public void onLeaderChange(int party, int leader) {
+        append(LEADER, party, leader);
+    }
+
+    private void append(byte op, int party, int player) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.put(op).putInt(party);
+        if (player != PlayerIds.NONE) {
+            UUID uuid = ids.getUuid(player);
+            record.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+        }
+        record.clear();
+        records++;
+        writer.execute(() -> {
+            if (journal == null) {
+                return;
+            }
+            try {
+                while (record.hasRemaining()) {
+                    journal.write(record);
+                }
+            } catch (IOException e) {
+                Parties.err(e, "Failed to append to party journal {}", journalFile);
+            }
+        });
+    }
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || records == 0) {
+            return;
+        }
+        int tick = ticks.getAsInt();
+        if (records >= COMPACT_RECORDS || tick - lastCompaction >= COMPACT_TICKS) {
+            compact();
+        }
+    }
+
+    /**
+     * Encodes the registry into a snapshot on the calling thread and hands it
+     * to the writer, which replaces the snapshot file and truncates the journal.
+     */
+    public void compact() {
+        if (readOnly) {
+            return;
+        }
+        long next = ++generation;
+        byte[] snapshot = encodeSnapshot(next);
+        records = 0;
+        lastCompaction = ticks.getAsInt();
+        writer.execute(() -> {
+            try {
+                Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+                try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    ByteBuffer buffer = ByteBuffer.wrap(snapshot);
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    out.force(true);
+                }
+                Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                if (journal != null) {
+                    resetJournal(next);
+                }
+            } catch (IOException e) {
+                Parties.err(e, "Failed to write party snapshot {}", snapshotFile);
+            }
+        });
+    }
+
+    /**
+     * Empties the journal and starts it over for a snapshot generation. Only
+     * called on the writer thread.
+     */
+    private void resetJournal(long snapshotGeneration) throws IOException {
+        journal.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(JOURNAL_MAGIC).putLong(snapshotGeneration);
+        header.flip();
+        while (header.hasRemaining()) {
+            journal.write(header);
+        }
+        journal.force(false);
+    }
+
+    private byte[] encodeSnapshot(long snapshotGeneration) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + registry.getPartyCount() * 64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(snapshotGeneration);
+            out.writeInt(registry.getPartyCount());
+            for (int party = 0, n = registry.getPartyCapacity(); party < n; party++) {
+                if (!registry.exists(party)) {
+                    continue;
+                }
+                int[] members = registry.getMembers(party);
+                int size = registry.getSize(party);
+                int leader = registry.getLeader(party);
+                out.writeInt(party);
+                out.writeInt(size);
+                // The leader is written first so loading can create the party with it.
+                writeMember(out, leader);
+                for (int i = 0; i < size; i++) {
+                    if (members[i] != leader) {
+                        writeMember(out, members[i]);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Writes to a byte array cannot fail.
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void writeMember(DataOutputStream out, int player) throws IOException {
+        UUID uuid = ids.getUuid(player);
+        String name = ids.getName(player);
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+        out.writeUTF(name == null ? "" : name);
+    }
+
+    /**
+     * Waits until every write queued so far has finished.
+     */
+    void sync() throws InterruptedException, ExecutionException {
+        writer.submit(() -> {}).get();
+    }
+
+    /**
+     * Writes a final snapshot and waits for the writer to finish. Called when
+     * the server stops.
+     */
+    public void close() {
+        compact();
+        writer.execute(() -> {
+            try {
+                if (journal != null) {
+                    journal.close();
+                }
+            } catch (IOException e) {
+                Parties.err(e, "Failed to close party journal {}", journalFile);
+            }
+        });
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+                Parties.warn("Timed out waiting for party storage to finish writing");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package app.sedu.mc.parties.data;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+/**
+ * Hands out compact int ids to players for the lifetime of the server.
+ * <p>
+ * Every server-side party system keys its per-player state by these ids
+ * so it can use flat arrays instead of {@code UUID} maps. Ids are never
+ * reused while the server runs, so offline party members keep theirs.
+ */
+public class PlayerIds {
+    public static final int NONE = -1;
+
+    private final Object2IntOpenHashMap<UUID> byUuid = new Object2IntOpenHashMap<>();
+    private UUID[] uuids = new UUID[64];
+    private String[] names = new String[64];
+    private ServerPlayer[] players = new ServerPlayer[64];
+    private int size;
+
+    private int[] online = new int[64];
+    private int[] onlineIndex = new int[64];
+    private int onlineCount;
+
+    public PlayerIds() {
+        byUuid.defaultReturnValue(NONE);
+        Arrays.fill(onlineIndex, -1);
+    }
+
+    /**
+     * Retrieves the id of a player, assigning a new one if the player has
+     * never been seen before.
+     *
+     * @param uuid  the player's UUID
+     * @param name  the player's last known name, or null to keep the current one
+     * @return the player's id.
+     */
+    public int getOrCreate(UUID uuid, String name) {
+        int id = byUuid.getInt(uuid);
+        if (id == NONE) {
+            id = size++;
+            if (id == uuids.length) {
+                grow(id * 2);
+            }
+            uuids[id] = uuid;
+            byUuid.put(uuid, id);
+        }
+        if (name != null) {
+            names[id] = name;
+        }
+        return id;
+    }
+
+    /**
+     * Retrieves the id cached on a player entity.
+     *
+     * @param player  the player
+     * @return the player's id, or {@link #NONE} if the player has no id (such as fake players).
+     */
+    public static int idOf(ServerPlayer player) {
+        return ((PartyMember) player).parties$getMemberId();
+    }
+
+    /**
+     * Retrieves the id of a player.
+     *
+     * @param uuid  the player's UUID
+     * @return the player's id, or {@link #NONE} if the player has no id.
+     */
+    public int get(UUID uuid) {
+        return byUuid.getInt(uuid);
+    }
+
+    public UUID getUuid(int id) {
+        return uuids[id];
+    }
+
+    public String getName(int id) {
+        return names[id];
+    }
+
+    /**
+     * Retrieves the online player entity with the given id.
+     *
+     * @param id  the player id
+     * @return the player, or null if the player is offline.
+     */
+    public ServerPlayer getPlayer(int id) {
+        return players[id];
+    }
+
+    /**
+     * @return the number of ids handed out so far. Valid ids are {@code [0, size)}.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of players currently online.
+     */
+    public int getOnlineCount() {
+        return onlineCount;
+    }
+
+    /**
+     * Retrieves the id of the online player at the given index. Together with
+     * {@link #getOnlineCount()} this allows iterating online players without
+     * allocating.
+     *
+     * @param index  an index in {@code [0, getOnlineCount())}
+     * @return the player id.
+     */
+    public int getOnlineId(int index) {
+        return online[index];
+    }
+
+    @SubscribeEvent(priority = EventPriority.HIGHEST)
+    public void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
+        if (event.getEntity() instanceof ServerPlayer player) {
+            int id = getOrCreate(player.getUUID(), player.getGameProfile().getName());
+            ((PartyMember) player).parties$setMemberId(id);
+            players[id] = player;
+            if (onlineIndex[id] == -1) {
+                onlineIndex[id] = onlineCount;
+                online[onlineCount++] = id;
+            }
+        }
+    }
+
+    @SubscribeEvent(priority = EventPriority.HIGHEST)
+    public void onPlayerRespawn(PlayerEvent.PlayerRespawnEvent event) {
+        // Respawning (and leaving the End) replaces the player entity.
+        if (event.getEntity() instanceof ServerPlayer player) {
+            int id = get(player.getUUID());
+            if (id != NONE) {
+                ((PartyMember) player).parties$setMemberId(id);
+                players[id] = player;
+            }
+        }
+    }
+
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        int id = get(event.getEntity().getUUID());
+        if (id == NONE || onlineIndex[id] == -1) {
+            return;
+        }
+        players[id] = null;
+        int index = onlineIndex[id];
+        int last = online[--onlineCount];
+        online[index] = last;
+        onlineIndex[last] = index;
+        onlineIndex[id] = -1;
+    }
+
+    private void grow(int capacity) {
+        uuids = Arrays.copyOf(uuids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        players = Arrays.copyOf(players, capacity);
+        online = Arrays.copyOf(online, capacity);
+        int old = onlineIndex.length;
+        onlineIndex = Arrays.copyOf(onlineIndex, capacity);
+        Arrays.fill(onlineIndex, old, capacity, -1);
+    }
+}
@@ -0,0 +1,132 @@
+package app.sedu.mc.parties.gametest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import app.sedu.mc.parties.Parties;
+import app.sedu.mc.parties.config.CommonSnapshot;
+import app.sedu.mc.parties.profile.PartyProfiler;
+import net.minecraftforge.server.ServerLifecycleHooks;
+
+/**
+ * Collects the results of the load scenarios and writes them to
+ * {@code parties-loadtest.json} in the server directory. The file is
+ * rewritten after every scenario, so a run that times out still leaves
+ * the scenarios that finished. Scenarios that could not run with the
+ * server's config are listed separately with the reason.
+ */
+final class LoadReport {
+    private static final String FILE = Parties.MODID + "-loadtest.json";
+    private static final List<Result> results = new ArrayList<>();
+    private static final List<Skipped> skipped = new ArrayList<>();
+
+    private LoadReport() {}
+
+    /**
+     * The measurements of one scenario. Times are in nanoseconds.
+     */
+    record Result(String name, int players, int ticks, long meanTick, long p50Tick, long p99Tick, long maxTick,
+            long allocatedPerTick, PartyProfiler.Report profile) {}
+
+    /**
+     * A scenario that did not run, and why.
+     */
+    record Skipped(String name, String reason) {}
+
+    static synchronized void add(Result result) {
+        results.add(result);
+        Parties.info("Load scenario {}: {} players, mean tick {} us, p99 {} us, {} bytes allocated per tick",
+            result.name(), result.players(), result.meanTick() / 1000, result.p99Tick() / 1000,
+            result.allocatedPerTick());
+        write();
+    }
+
+    /**
+     * Records a scenario that did not run.
+     *
+     * @param name  the scenario name
+     * @param reason  why it did not run
+     */
+    static synchronized void skip(String name, String reason) {
+        skipped.add(new Skipped(name, reason));
+        Parties.warn("Load scenario {} skipped: {}", name, reason);
+        write();
+    }
+
+    private static void write() {
+        Path file = ServerLifecycleHooks.getCurrentServer().getServerDirectory().toPath().resolve(FILE);
+        try {
+            Files.writeString(file, toJson(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Parties.err(e, "Failed to write the load test report to {}", file);
+        }
+    }
+
+    private static String toJson() {
+        CommonSnapshot config = CommonSnapshot.get();
+        StringBuilder json = new StringBuilder(4096);
+        // Keys are the names in the config file, not the snapshot fields.
+        json.append("{\n  \"config\": {")
+            .append("\"partySize\": ").append(config.partySize)
+            .append(", \"adaptiveSync\": ").append(config.adaptiveSync)
+            .append(", \"syncByteBudget\": ").append(config.syncByteBudget)
+            .append(", \"bossModuleEnabled\": ").append(config.bossModule)
+            .append(", \"useVanillaTeams\": ").append(config.hookVanillaTeams)
+            .append("},\n  \"scenarios\": [");
+        for (int i = 0; i < results.size(); i++) {
+            Result result = results.get(i);
+            json.append(i == 0 ? "\n" : ",\n")
+                .append("    {\"name\": \"").append(result.name()).append('"')
+                .append(", \"players\": ").append(result.players())
+                .append(", \"ticks\": ").append(result.ticks())
+                .append(",\n     \"mspt\": {\"mean\": ").append(millis(result.meanTick()))
+                .append(", \"p50\": ").append(millis(result.p50Tick()))
+                .append(", \"p99\": ").append(millis(result.p99Tick()))
+                .append(", \"max\": ").append(millis(result.maxTick())).append('}')
+                .append(",\n     \"allocatedBytesPerTick\": ").append(result.allocatedPerTick());
+            PartyProfiler.Report profile = result.profile();
+            if (profile != null) {
+                json.append(",\n     \"sections\": {");
+                PartyProfiler.Section[] sections = PartyProfiler.Section.values();
+                for (int j = 0; j < sections.length; j++) {
+                    PartyProfiler.Section section = sections[j];
+                    json.append(j == 0 ? "" : ", ")
+                        .append('"').append(section.name().toLowerCase()).append("\": {")
+                        .append("\"p50_us\": ").append(micros(profile.getP50(section)))
+                        .append(", \"p99_us\": ").append(micros(profile.getP99(section)))
+                        .append(", \"mean_us\": ").append(micros(profile.getMean(section))).append('}');
+                }
+                json.append("},\n     \"counters\": {");
+                PartyProfiler.Counter[] counters = PartyProfiler.Counter.values();
+                for (int j = 0; j < counters.length; j++) {
+                    json.append(j == 0 ? "" : ", ")
+                        .append('"').append(counters[j].name().toLowerCase()).append("\": ")
+                        .append(profile.getTotal(counters[j]));
+                }
+                json.append('}');
+            }
+            json.append('}');
+        }
+        json.append("\n  ],\n  \"skipped\": [");
+        for (int i = 0; i < skipped.size(); i++) {
+            Skipped scenario = skipped.get(i);
+            json.append(i == 0 ? "\n" : ",\n")
+                .append("    {\"name\": \"").append(scenario.name()).append('"')
+                .append(", \"reason\": \"").append(scenario.reason()).append("\"}");
+        }
+        return json.append("\n  ]\n}\n").toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000.0);
+    }
+}
@@ -0,0 +1,218 @@
+package app.sedu.mc.parties.gametest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import com.mojang.authlib.GameProfile;
+
+import app.sedu.mc.parties.Parties;
+import app.sedu.mc.parties.config.CommonSnapshot;
+import app.sedu.mc.parties.data.PartyRegistry;
+import app.sedu.mc.parties.data.PlayerIds;
+import app.sedu.mc.parties.profile.PartyProfiler;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import net.minecraft.gametest.framework.GameTestHelper;
+import net.minecraft.network.Connection;
+import net.minecraft.network.protocol.PacketFlow;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.GameType;
+import net.minecraft.world.phys.Vec3;
+
+/**
+ * Runs one load scenario: logs in {@link #PLAYERS} mock players, puts them
+ * in full parties, runs the scenario's action every tick for
+ * {@link #RUN_TICKS} ticks and records what the server spent on it.
+ * <p>
+ * The players are real {@link ServerPlayer}s on an in-memory connection,
+ * so they go through the same login, logout and packet paths as players
+ * on a live server without any network access. They are not ticked by
+ * their connection, so scenarios drive them directly.
+ * <p>
+ * Tick time comes from the server's own tick times, allocation from the
+ * server thread's allocated byte counter, and per-subsystem time and
+ * traffic from the {@link PartyProfiler}, which is enabled for the run.
+ */
+final class LoadSimulation {
+    static final int PLAYERS = 200;
+    static final int WARMUP_TICKS = 20;
+    static final int RUN_TICKS = 400;
+    /** Side of the square the players are spread over, matching the test structure. */
+    static final int AREA = 32;
+
+    final GameTestHelper helper;
+    final String name;
+    final ServerLevel level;
+    final MinecraftServer server;
+    final PlayerIds ids;
+    final PartyRegistry registry;
+    final List<ServerPlayer> players = new ArrayList<>();
+    final Random random;
+
+    private final long[] tickNanos = new long[RUN_TICKS];
+    private int ticks;
+    private long allocatedStart;
+    private boolean profilerWasEnabled;
+
+    private LoadSimulation(GameTestHelper helper, String name) {
+        this.helper = helper;
+        this.name = name;
+        this.level = helper.getLevel();
+        this.server = level.getServer();
+        this.ids = Parties.getPlayerIds();
+        this.registry = Parties.getRegistry();
+        this.random = new Random(name.hashCode());
+    }
+
+    /**
+     * Schedules a scenario on a test.
+     *
+     * @param helper  the test's helper
+     * @param name  the scenario name used in the report
+     * @param action  run once per measured tick
+     */
+    static void run(GameTestHelper helper, String name, Consumer<LoadSimulation> action) {
+        LoadSimulation simulation = new LoadSimulation(helper, name);
+        helper.startSequence()
+            .thenExecute(simulation::spawn)
+            .thenIdle(WARMUP_TICKS)
+            .thenExecute(simulation::begin)
+            .thenExecuteFor(RUN_TICKS, () -> {
+                simulation.sample();
+                action.accept(simulation);
+            })
+            .thenExecute(simulation::finish)
+            .thenSucceed();
+    }
+
+    private void spawn() {
+        for (int i = 0; i < PLAYERS; i++) {
+            ServerPlayer player = login("load" + i);
+            player.teleportTo(level, randomX(), helper.absoluteVec(Vec3.ZERO).y + 1, randomZ(), 0, 0);
+            players.add(player);
+        }
+        int partySize = Math.max(2, Math.min(CommonSnapshot.get().partySize, PLAYERS));
+        int party = PartyRegistry.NONE;
+        for (int i = 0; i < PLAYERS; i++) {
+            int id = idOf(i);
+            if (i % partySize == 0) {
+                party = registry.create(id);
+            } else {
+                registry.join(party, id);
+            }
+        }
+    }
+
+    private ServerPlayer login(String name) {
+        UUID uuid = UUID.nameUUIDFromBytes((Parties.MODID + ":" + name).getBytes());
+        ServerPlayer player = new ServerPlayer(server, level, new GameProfile(uuid, name));
+        Connection connection = new Connection(PacketFlow.SERVERBOUND);
+        // Gives the connection an in-memory channel that drops outgoing packets as they are sent,
+        // so the chunk and sync packets of every player are not kept alive for the whole run.
+        new EmbeddedChannel(DiscardOutbound.INSTANCE, connection);
+        server.getPlayerList().placeNewPlayer(connection, player);
+        player.setGameMode(GameType.SURVIVAL);
+        return player;
+    }
+
+    private void begin() {
+        profilerWasEnabled = PartyProfiler.isEnabled();
+        PartyProfiler.setEnabled(true);
+        PartyProfiler.reset();
+        allocatedStart = allocatedBytes();
+    }
+
+    private void sample() {
+        // This tick's time is written when it ends, read the previous one.
+        if (ticks < tickNanos.length) {
+            tickNanos[ticks++] = server.tickTimes[(server.getTickCount() + 99) % 100];
+        }
+    }
+
+    private void finish() {
+        long allocated = allocatedStart < 0 ? -1 : allocatedBytes() - allocatedStart;
+        PartyProfiler.Report profile = PartyProfiler.report();
+        PartyProfiler.setEnabled(profilerWasEnabled);
+
+        long[] sorted = Arrays.copyOf(tickNanos, ticks);
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long nanos : sorted) {
+            total += nanos;
+        }
+        LoadReport.add(new LoadReport.Result(name, PLAYERS, ticks, total / Math.max(1, ticks),
+            percentile(sorted, 50), percentile(sorted, 99), ticks == 0 ? 0 : sorted[ticks - 1],
+            allocated < 0 ? -1 : allocated / Math.max(1, ticks), profile));
+
+        for (ServerPlayer player : players) {
+            registry.leave(PlayerIds.idOf(player));
+            server.getPlayerList().remove(player);
+        }
+        players.clear();
+    }
+
+    /**
+     * Completes and drops every write, instead of the embedded channel's
+     * default of queueing them until read.
+     */
+    @ChannelHandler.Sharable
+    private static final class DiscardOutbound extends ChannelOutboundHandlerAdapter {
+        static final DiscardOutbound INSTANCE = new DiscardOutbound();
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            ReferenceCountUtil.release(msg);
+            promise.trySuccess();
+        }
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * @return the bytes allocated by the server thread so far, or -1 if the JVM does not track it.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean allocation && allocation.isThreadAllocatedMemorySupported()) {
+            return allocation.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * @return the player id of the player at an index.
+     */
+    int idOf(int index) {
+        return PlayerIds.idOf(players.get(index));
+    }
+
+    ServerPlayer randomPlayer() {
+        return players.get(random.nextInt(players.size()));
+    }
+
+    double randomX() {
+        return helper.absoluteVec(Vec3.ZERO).x + random.nextDouble() * AREA;
+    }
+
+    double randomZ() {
+        return helper.absoluteVec(Vec3.ZERO).z + random.nextDouble() * AREA;
+    }
+}
@@ -0,0 +1,191 @@
+package app.sedu.mc.parties.gametest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import app.sedu.mc.parties.Parties;
+import app.sedu.mc.parties.config.CommonSnapshot;
+import app.sedu.mc.parties.data.PartyInvites;
+import app.sedu.mc.parties.data.PartyRegistry;
+import app.sedu.mc.parties.data.PlayerIds;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.gametest.framework.GameTest;
+import net.minecraft.gametest.framework.GameTestHelper;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.ExperienceOrb;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.item.ItemEntity;
+import net.minecraft.world.phys.AABB;
+import net.minecraftforge.gametest.GameTestHolder;
+import net.minecraftforge.gametest.PrefixGameTestTemplate;
+
+/**
+ * Load scenarios for the server-side party systems, run by the
+ * {@code gameTestServer} run configuration. Each scenario gets its own
+ * batch so they run one after another, and writes its measurements to the
+ * report described in {@link LoadReport}.
+ * <p>
+ * The scenarios only use an empty structure and mock players, so they run
+ * offline. Boss scaling is only exercised when {@code bossModuleEnabled}
+ * ({@link app.sedu.mc.parties.config.CommonSnapshot#bossModule}) is on in
+ * the config the server starts with; otherwise the boss scenario is listed
+ * as skipped in the report.
+ */
+@GameTestHolder(Parties.MODID)
+@PrefixGameTestTemplate(false)
+public class PartyLoadTests {
+    private static final String TEMPLATE = "empty";
+    private static final int TIMEOUT = LoadSimulation.WARMUP_TICKS + LoadSimulation.RUN_TICKS + 200;
+    private static final ResourceLocation CAST_BAR = new ResourceLocation(Parties.MODID, "loadtest_cast_bar");
+
+    /**
+     * A quarter of the players pick up an experience orb every tick, all of
+     * it shared with their party.
+     */
+    @GameTest(template = TEMPLATE, batch = "parties_load_xp", timeoutTicks = TIMEOUT)
+    public static void xpOrbs(GameTestHelper helper) {
+        LoadSimulation.run(helper, "xp_orbs", sim -> {
+            for (int i = 0; i < LoadSimulation.PLAYERS / 4; i++) {
+                ServerPlayer player = sim.randomPlayer();
+                ExperienceOrb orb = new ExperienceOrb(sim.level, player.getX(), player.getY(), player.getZ(), 3);
+                sim.level.addFreshEntity(orb);
+                // Mock players are not ticked, so the pickup delay never runs out by itself.
+                player.takeXpDelay = 0;
+                orb.playerTouch(player);
+                if (!orb.isRemoved()) {
+                    orb.discard();
+                }
+            }
+        });
+    }
+
+    /**
+     * A tenth of the players hit everyone within four blocks every tick,
+     * mates included, and publish a cast bar state through the mod relay.
+     */
+    @GameTest(template = TEMPLATE, batch = "parties_load_combat", timeoutTicks = TIMEOUT)
+    public static void aoeCombat(GameTestHelper helper) {
+        byte[] castBar = new byte[16];
+        LoadSimulation.run(helper, "aoe_combat", sim -> {
+            for (int i = 0; i < LoadSimulation.PLAYERS / 10; i++) {
+                ServerPlayer caster = sim.randomPlayer();
+                castBar[0] = (byte) sim.random.nextInt(100);
+                Parties.getModRelay().publish(caster, CAST_BAR, castBar.clone());
+                for (ServerPlayer target : sim.players) {
+                    if (target == caster || target.distanceToSqr(caster) > 16) {
+                        continue;
+                    }
+                    target.invulnerableTime = 0;
+                    target.hurt(sim.level.damageSources().playerAttack(caster), 2f);
+                    if (target.getHealth() < 6) {
+                        target.setHealth(target.getMaxHealth());
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Spawns a marked boss near a random player every second and kills the
+     * previous one with a player attack, so both scaling and loot run.
+     * Skipped when the boss module is off or no boss is listed by id.
+     */
+    @GameTest(template = TEMPLATE, batch = "parties_load_bosses", timeoutTicks = TIMEOUT)
+    public static void bossSpawns(GameTestHelper helper) {
+        EntityType<?> type = markedBoss();
+        String skipped = !CommonSnapshot.get().bossModule ? "bossModuleEnabled is off"
+            : type == null ? "markBosses lists no entity id" : null;
+        if (skipped != null) {
+            LoadReport.skip("boss_spawns", skipped);
+            helper.succeed();
+            return;
+        }
+        List<Entity> bosses = new ArrayList<>();
+        int[] tick = new int[1];
+        LoadSimulation.run(helper, "boss_spawns", sim -> {
+            if (tick[0]++ % 20 != 0) {
+                return;
+            }
+            ServerPlayer player = sim.randomPlayer();
+            for (Entity boss : bosses) {
+                if (boss instanceof LivingEntity living && living.isAlive()) {
+                    living.invulnerableTime = 0;
+                    living.hurt(sim.level.damageSources().playerAttack(player), Float.MAX_VALUE);
+                }
+                boss.discard();
+            }
+            bosses.clear();
+            AABB area = new AABB(sim.helper.absolutePos(BlockPos.ZERO)).inflate(LoadSimulation.AREA * 2);
+            for (ItemEntity item : sim.level.getEntitiesOfClass(ItemEntity.class, area)) {
+                item.discard();
+            }
+            Entity boss = type.create(sim.level);
+            if (boss != null) {
+                boss.moveTo(player.getX(), player.getY(), player.getZ());
+                sim.level.addFreshEntity(boss);
+                bosses.add(boss);
+            }
+        });
+    }
+
+    /**
+     * Every tick 50 invites with random short lifetimes go out and 10 are
+     * answered, so the timer wheel adds, cancels and expires constantly.
+     */
+    @GameTest(template = TEMPLATE, batch = "parties_load_invites", timeoutTicks = TIMEOUT)
+    public static void inviteStorm(GameTestHelper helper) {
+        LoadSimulation.run(helper, "invite_storm", sim -> {
+            PartyInvites invites = Parties.getInvites();
+            for (int i = 0; i < 50; i++) {
+                int inviter = PlayerIds.idOf(sim.randomPlayer());
+                int invitee = PlayerIds.idOf(sim.randomPlayer());
+                if (inviter != invitee) {
+                    invites.add(inviter, invitee, 1 + sim.random.nextInt(60));
+                }
+            }
+            for (int i = 0; i < 10; i++) {
+                int invitee = PlayerIds.idOf(sim.randomPlayer());
+                int inviter = invites.getLatestInviter(invitee);
+                if (inviter != PlayerIds.NONE) {
+                    invites.cancel(inviter, invitee);
+                }
+            }
+        });
+    }
+
+    /**
+     * Every tick a tenth of the players leave their party and join another
+     * one with room, or start their own.
+     */
+    @GameTest(template = TEMPLATE, batch = "parties_load_membership", timeoutTicks = TIMEOUT)
+    public static void massJoinLeave(GameTestHelper helper) {
+        LoadSimulation.run(helper, "mass_join_leave", sim -> {
+            PartyRegistry registry = sim.registry;
+            for (int i = 0; i < LoadSimulation.PLAYERS / 10; i++) {
+                int player = PlayerIds.idOf(sim.randomPlayer());
+                registry.leave(player);
+                int other = registry.getParty(PlayerIds.idOf(sim.randomPlayer()));
+                if (other == PartyRegistry.NONE || !registry.join(other, player)) {
+                    registry.create(player);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the first entity type listed in {@code markBosses}, or null if only tags or namespaces are listed.
+     */
+    private static EntityType<?> markedBoss() {
+        for (String entry : CommonSnapshot.get().markBosses) {
+            ResourceLocation id = ResourceLocation.tryParse(entry);
+            if (id != null && !entry.endsWith(":*") && BuiltInRegistries.ENTITY_TYPE.containsKey(id)) {
+                return BuiltInRegistries.ENTITY_TYPE.get(id);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,28 @@
+package app.sedu.mc.parties.mixin;
+
+import java.util.Collection;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Coerce;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import app.sedu.mc.parties.Parties;
+import app.sedu.mc.parties.xp.XpShareStage;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.server.commands.ExperienceCommand;
+import net.minecraft.server.level.ServerPlayer;
+
+@Mixin(ExperienceCommand.class)
+public abstract class ExperienceCommandMixin {
+
+    @Inject(method = {"addExperience", "setExperience"}, at = @At("HEAD"))
+    private static void parties$markTargets(CommandSourceStack source, Collection<? extends ServerPlayer> targets,
+            int amount, @Coerce Object type, CallbackInfoReturnable<Integer> cir) {
+        XpShareStage xpShare = Parties.getXpShare();
+        if (xpShare != null) {
+            xpShare.markCommandTargets(targets);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package app.sedu.mc.parties.mixin;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import app.sedu.mc.parties.Parties;
+import app.sedu.mc.parties.boss.BossModule;
+import app.sedu.mc.parties.boss.CapturedLoot;
+import app.sedu.mc.parties.boss.LootRoll;
+import net.minecraft.world.damagesource.DamageSource;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.item.ItemEntity;
+
+@Mixin(LivingEntity.class)
+public abstract class LivingEntityMixin implements CapturedLoot {
+    @Unique
+    private int parties$lootStart;
+    @Unique
+    private LootRoll parties$lootRoll;
+
+    @Override
+    public LootRoll parties$getLootRoll() {
+        return parties$lootRoll;
+    }
+
+    @Inject(method = "dropFromLootTable", at = @At("HEAD"))
+    private void parties$beginLootDrops(DamageSource source, boolean hitByPlayer, CallbackInfo ci) {
+        LivingEntity self = (LivingEntity) (Object) this;
+        parties$lootRoll = null;
+        BossModule bosses = Parties.getBossModule();
+        Collection<ItemEntity> drops = self.captureDrops();
+        if (bosses != null && drops != null && bosses.scalesLoot(self)) {
+            parties$lootStart = drops.size();
+            parties$lootRoll = LootRoll.begin();
+        }
+    }
+
+    @Inject(method = "dropFromLootTable", at = @At("RETURN"))
+    private void parties$endLootDrops(DamageSource source, boolean hitByPlayer, CallbackInfo ci) {
+        if (parties$lootRoll == null) {
+            return;
+        }
+        Collection<ItemEntity> drops = ((LivingEntity) (Object) this).captureDrops();
+        // Drops are captured into a list during death, in the order they were spawned.
+        if (drops instanceof List<ItemEntity> list && list.size() > parties$lootStart) {
+            parties$lootRoll.end(list.subList(parties$lootStart, list.size()));
+        } else {
+            parties$lootRoll.end(List.of());
+        }
+    }
+}
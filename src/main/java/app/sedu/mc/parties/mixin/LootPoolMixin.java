@@ -0,0 +1,23 @@
+package app.sedu.mc.parties.mixin;
+
+import java.util.function.Consumer;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.ModifyVariable;
+
+import app.sedu.mc.parties.boss.LootRoll;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.storage.loot.LootContext;
+import net.minecraft.world.level.storage.loot.LootPool;
+
+@Mixin(LootPool.class)
+public abstract class LootPoolMixin {
+
+    @ModifyVariable(method = "addRandomItems", at = @At("HEAD"), argsOnly = true)
+    private Consumer<ItemStack> parties$watchBossRoll(Consumer<ItemStack> output, Consumer<ItemStack> original,
+            LootContext context) {
+        LootRoll roll = LootRoll.active();
+        return roll == null ? output : roll.watch((LootPool) (Object) this, context, output);
+    }
+}
@@ -0,0 +1,37 @@
+package app.sedu.mc.parties.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+
+import app.sedu.mc.parties.data.PartyMember;
+import app.sedu.mc.parties.data.PartyRegistry;
+import app.sedu.mc.parties.data.PlayerIds;
+import net.minecraft.server.level.ServerPlayer;
+
+@Mixin(ServerPlayer.class)
+public abstract class ServerPlayerMixin implements PartyMember {
+    @Unique
+    private int parties$memberId = PlayerIds.NONE;
+    @Unique
+    private int parties$partyId = PartyRegistry.NONE;
+
+    @Override
+    public int parties$getMemberId() {
+        return parties$memberId;
+    }
+
+    @Override
+    public void parties$setMemberId(int id) {
+        parties$memberId = id;
+    }
+
+    @Override
+    public int parties$getPartyId() {
+        return parties$partyId;
+    }
+
+    @Override
+    public void parties$setPartyId(int party) {
+        parties$partyId = party;
+    }
+}
@@ -0,0 +1,22 @@
+package app.sedu.mc.parties.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Redirect;
+
+import app.sedu.mc.parties.team.ScoreboardBatch;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.server.ServerScoreboard;
+import net.minecraft.server.players.PlayerList;
+
+@Mixin(ServerScoreboard.class)
+public abstract class ServerScoreboardMixin {
+
+    @Redirect(
+        method = {"addPlayerToTeam", "removePlayerFromTeam", "onTeamAdded", "onTeamChanged", "onTeamRemoved"},
+        at = @At(value = "INVOKE",
+            target = "Lnet/minecraft/server/players/PlayerList;broadcastAll(Lnet/minecraft/network/protocol/Packet;)V"))
+    private void parties$broadcastTeamPacket(PlayerList players, Packet<?> packet) {
+        ScoreboardBatch.broadcast(players, packet);
+    }
+}
@@ -0,0 +1,45 @@
+package app.sedu.mc.parties.network;
+
+import java.util.function.Supplier;
+
+import app.sedu.mc.parties.client.ClientPartyData;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.fml.DistExecutor;
+import net.minecraftforge.network.NetworkEvent;
+
+/**
+ * Carries a batch of party member entries, encoded by
+ * {@link app.sedu.mc.parties.sync.MemberSyncCodec}. The server builds the
+ * payload once per recipient, so the packet only copies bytes.
+ */
+public class MemberSyncPacket {
+    private final ByteBuf payload;
+
+    public MemberSyncPacket(ByteBuf payload) {
+        this.payload = payload;
+    }
+
+    /**
+     * @return the size of the payload in bytes.
+     */
+    public int size() {
+        return payload.readableBytes();
+    }
+
+    public void encode(FriendlyByteBuf buf) {
+        buf.writeBytes(payload, payload.readerIndex(), payload.readableBytes());
+    }
+
+    public static MemberSyncPacket decode(FriendlyByteBuf buf) {
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.readBytes(bytes);
+        return new MemberSyncPacket(Unpooled.wrappedBuffer(bytes));
+    }
+
+    public void handle(Supplier<NetworkEvent.Context> context) {
+        DistExecutor.unsafeRunWhenOn(Dist.CLIENT, () -> () -> ClientPartyData.INSTANCE.apply(new FriendlyByteBuf(payload)));
+    }
+}
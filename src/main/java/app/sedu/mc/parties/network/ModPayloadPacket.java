@@ -0,0 +1,44 @@
+package app.sedu.mc.parties.network;
+
+import java.util.function.Supplier;
+
+import app.sedu.mc.parties.client.ClientModPayloads;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.fml.DistExecutor;
+import net.minecraftforge.network.NetworkEvent;
+
+/**
+ * Carries a tick's worth of relayed mod states for one recipient, encoded
+ * by {@link app.sedu.mc.parties.relay.ModPayloadRelay}.
+ */
+public class ModPayloadPacket {
+    private final ByteBuf payload;
+
+    public ModPayloadPacket(ByteBuf payload) {
+        this.payload = payload;
+    }
+
+    /**
+     * @return the size of the payload in bytes.
+     */
+    public int size() {
+        return payload.readableBytes();
+    }
+
+    public void encode(FriendlyByteBuf buf) {
+        buf.writeBytes(payload, payload.readerIndex(), payload.readableBytes());
+    }
+
+    public static ModPayloadPacket decode(FriendlyByteBuf buf) {
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.readBytes(bytes);
+        return new ModPayloadPacket(Unpooled.wrappedBuffer(bytes));
+    }
+
+    public void handle(Supplier<NetworkEvent.Context> context) {
+        DistExecutor.unsafeRunWhenOn(Dist.CLIENT, () -> () -> ClientModPayloads.INSTANCE.apply(new FriendlyByteBuf(payload)));
+    }
+}
@@ -0,0 +1,53 @@
+package app.sedu.mc.parties.network;
+
+import app.sedu.mc.parties.Parties;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.network.NetworkDirection;
+import net.minecraftforge.network.NetworkRegistry;
+import net.minecraftforge.network.PacketDistributor;
+import net.minecraftforge.network.simple.SimpleChannel;
+
+/**
+ * Owns the mod's network channel and its packet registrations.
+ */
+public final class PartiesNetwork {
+    private static final String PROTOCOL = "1";
+
+    public static final SimpleChannel CHANNEL = NetworkRegistry.newSimpleChannel(
+        new ResourceLocation(Parties.MODID, "main"), () -> PROTOCOL, PROTOCOL::equals, PROTOCOL::equals);
+
+    private PartiesNetwork() {}
+
+    /**
+     * Registers every packet on the channel. Called once during common setup.
+     */
+    public static void register() {
+        int id = 0;
+        CHANNEL.messageBuilder(MemberSyncPacket.class, id++, NetworkDirection.PLAY_TO_CLIENT)
+            .encoder(MemberSyncPacket::encode)
+            .decoder(MemberSyncPacket::decode)
+            .consumerMainThread(MemberSyncPacket::handle)
+            .add();
+        CHANNEL.messageBuilder(ModPayloadPacket.class, id++, NetworkDirection.PLAY_TO_CLIENT)
+            .encoder(ModPayloadPacket::encode)
+            .decoder(ModPayloadPacket::decode)
+            .consumerMainThread(ModPayloadPacket::handle)
+            .add();
+        CHANNEL.messageBuilder(ReloadConfigPacket.class, id++, NetworkDirection.PLAY_TO_CLIENT)
+            .encoder(ReloadConfigPacket::encode)
+            .decoder(ReloadConfigPacket::decode)
+            .consumerMainThread(ReloadConfigPacket::handle)
+            .add();
+    }
+
+    /**
+     * Sends a packet to a single player.
+     *
+     * @param player  the player to send the packet to
+     * @param packet  the packet to send
+     */
+    public static void send(ServerPlayer player, Object packet) {
+        CHANNEL.send(PacketDistributor.PLAYER.with(() -> player), packet);
+    }
+}
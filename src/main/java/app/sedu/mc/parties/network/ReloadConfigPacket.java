@@ -0,0 +1,33 @@
+package app.sedu.mc.parties.network;
+
+import java.util.function.Supplier;
+
+import app.sedu.mc.parties.client.PartyHud;
+import app.sedu.mc.parties.config.ConfigReloader;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.fml.DistExecutor;
+import net.minecraftforge.fml.config.ModConfig;
+import net.minecraftforge.network.NetworkEvent;
+
+/**
+ * Tells a client to reload its client config, sent by {@code /party reload}
+ * since the client config lives on the client.
+ */
+public class ReloadConfigPacket {
+
+    public void encode(FriendlyByteBuf buf) {
+    }
+
+    public static ReloadConfigPacket decode(FriendlyByteBuf buf) {
+        return new ReloadConfigPacket();
+    }
+
+    public void handle(Supplier<NetworkEvent.Context> context) {
+        DistExecutor.unsafeRunWhenOn(Dist.CLIENT, () -> () -> {
+            if (ConfigReloader.reload(ModConfig.Type.CLIENT)) {
+                PartyHud.INSTANCE.invalidate();
+            }
+        });
+    }
+}
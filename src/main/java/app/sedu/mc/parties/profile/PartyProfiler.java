@@ -0,0 +1,302 @@
+package app.sedu.mc.parties.profile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import app.sedu.mc.parties.Parties;
+import app.sedu.mc.parties.config.CommonSnapshot;
+import net.minecraft.Util;
+import net.minecraft.server.MinecraftServer;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+/**
+ * Measures the tick time each party subsystem takes.
+ * <p>
+ * Subsystems wrap their work in {@link #begin()} and {@link #end(Section, long)}
+ * and report what they did through {@link #count(Counter, long)}. Both only
+ * add to a per-tick total, which is moved into a ring buffer of the last
+ * {@link #SAMPLES} ticks when the next tick starts. Percentiles are
+ * computed from the ring only when a report is asked for.
+ * <p>
+ * While disabled, {@link #begin()} returns 0 without reading the clock and
+ * the other hooks return on their first check, so the instrumentation costs
+ * a branch per call and never allocates. The buffers themselves are only
+ * allocated on the first enable.
+ */
+public final class PartyProfiler {
+    /** The number of ticks kept, one minute at 20 ticks per second. */
+    public static final int SAMPLES = 1200;
+    private static final String DUMP_FILE = Parties.MODID + "-profile.json";
+
+    /**
+     * The timed subsystems.
+     */
+    public enum Section {
+        SYNC, XP_SHARE, BOSS, INVITES, RELAY, TEAMS
+    }
+
+    /**
+     * The counted events.
+     */
+    public enum Counter {
+        SYNC_PACKETS, SYNC_BYTES, RELAY_PACKETS, RELAY_BYTES, TEAM_PACKETS, TEAM_BYTES, XP_SHARES, BOSS_SCALES,
+        INVITE_EXPIRIES
+    }
+
+    private static final Section[] SECTIONS = Section.values();
+    private static final Counter[] COUNTERS = Counter.values();
+
+    private static boolean enabled;
+    private static MinecraftServer server;
+    private static long[][] times;
+    private static long[][] counts;
+    private static final long[] tickTime = new long[SECTIONS.length];
+    private static final long[] tickCount = new long[COUNTERS.length];
+    private static int cursor;
+    private static int filled;
+    private static int sinceDump;
+
+    private PartyProfiler() {}
+
+    /**
+     * Attaches the profiler to a starting server, enabled if the config says so.
+     */
+    public static void open(MinecraftServer running) {
+        server = running;
+        setEnabled(CommonSnapshot.get().enableProfiler);
+    }
+
+    /**
+     * Detaches the profiler from a stopped server and disables it.
+     */
+    public static void close() {
+        setEnabled(false);
+        server = null;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns measuring on or off. Turning it on starts over with empty samples.
+     */
+    public static void setEnabled(boolean enable) {
+        if (enable && !enabled) {
+            if (times == null) {
+                times = new long[SECTIONS.length][SAMPLES];
+                counts = new long[COUNTERS.length][SAMPLES];
+            }
+            reset();
+        }
+        enabled = enable;
+    }
+
+    /**
+     * Discards every sample taken so far.
+     */
+    public static void reset() {
+        Arrays.fill(tickTime, 0);
+        Arrays.fill(tickCount, 0);
+        cursor = 0;
+        filled = 0;
+        sinceDump = 0;
+    }
+
+    /**
+     * Starts timing a piece of work.
+     *
+     * @return the start time to pass to {@link #end(Section, long)}, or 0 when disabled.
+     */
+    public static long begin() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Adds the time since {@link #begin()} to a subsystem's total for this tick.
+     *
+     * @param section  the subsystem that did the work
+     * @param start  the value {@link #begin()} returned
+     */
+    public static void end(Section section, long start) {
+        if (enabled && start != 0) {
+            tickTime[section.ordinal()] += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Adds to a counter's total for this tick.
+     */
+    public static void count(Counter counter, long amount) {
+        if (enabled) {
+            tickCount[counter.ordinal()] += amount;
+        }
+    }
+
+    @SubscribeEvent(priority = EventPriority.HIGHEST)
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.START || !enabled) {
+            return;
+        }
+        // Everything since the last tick started belongs to the previous tick.
+        for (int i = 0; i < tickTime.length; i++) {
+            times[i][cursor] = tickTime[i];
+            tickTime[i] = 0;
+        }
+        for (int i = 0; i < tickCount.length; i++) {
+            counts[i][cursor] = tickCount[i];
+            tickCount[i] = 0;
+        }
+        cursor = (cursor + 1) % SAMPLES;
+        filled = Math.min(filled + 1, SAMPLES);
+
+        int interval = CommonSnapshot.get().profilerDumpInterval * 20;
+        if (interval > 0 && ++sinceDump >= interval) {
+            sinceDump = 0;
+            dump();
+        }
+    }
+
+    /**
+     * Summarizes the samples as percentiles of each subsystem's time per tick
+     * and totals of each counter.
+     *
+     * @return the report, or null if there are no samples.
+     */
+    public static Report report() {
+        if (times == null || filled == 0) {
+            return null;
+        }
+        long[] sorted = new long[filled];
+        long[][] sectionStats = new long[SECTIONS.length][];
+        for (int i = 0; i < SECTIONS.length; i++) {
+            System.arraycopy(times[i], 0, sorted, 0, filled);
+            Arrays.sort(sorted);
+            long total = 0;
+            for (long sample : sorted) {
+                total += sample;
+            }
+            sectionStats[i] = new long[] {
+                percentile(sorted, 50), percentile(sorted, 99), sorted[filled - 1], total / filled
+            };
+        }
+        long[] counterTotals = new long[COUNTERS.length];
+        for (int i = 0; i < COUNTERS.length; i++) {
+            for (int j = 0; j < filled; j++) {
+                counterTotals[i] += counts[i][j];
+            }
+        }
+        return new Report(filled, sectionStats, counterTotals);
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * Writes the current report to {@value #DUMP_FILE} in the server directory,
+     * off the server thread.
+     */
+    public static void dump() {
+        Report report = report();
+        if (report == null || server == null) {
+            return;
+        }
+        String json = report.toJson();
+        Path file = server.getServerDirectory().toPath().resolve(DUMP_FILE);
+        Util.ioPool().execute(() -> {
+            try {
+                // Written whole and then moved so readers never see half a file.
+                Path temp = file.resolveSibling(DUMP_FILE + ".tmp");
+                Files.writeString(temp, json, StandardCharsets.UTF_8);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                Parties.err(e, "Failed to write the party profile to {}", file);
+            }
+        });
+    }
+
+    /**
+     * A summary of the sampled ticks.
+     */
+    public static final class Report {
+        private final int ticks;
+        private final long[][] sections;
+        private final long[] counters;
+
+        private Report(int ticks, long[][] sections, long[] counters) {
+            this.ticks = ticks;
+            this.sections = sections;
+            this.counters = counters;
+        }
+
+        /**
+         * @return the number of ticks the report covers.
+         */
+        public int getTicks() {
+            return ticks;
+        }
+
+        /**
+         * @return the median time the subsystem took per tick, in nanoseconds.
+         */
+        public long getP50(Section section) {
+            return sections[section.ordinal()][0];
+        }
+
+        /**
+         * @return the 99th percentile of the time the subsystem took per tick, in nanoseconds.
+         */
+        public long getP99(Section section) {
+            return sections[section.ordinal()][1];
+        }
+
+        /**
+         * @return the longest time the subsystem took in a tick, in nanoseconds.
+         */
+        public long getMax(Section section) {
+            return sections[section.ordinal()][2];
+        }
+
+        /**
+         * @return the mean time the subsystem took per tick, in nanoseconds.
+         */
+        public long getMean(Section section) {
+            return sections[section.ordinal()][3];
+        }
+
+        /**
+         * @return the counter's total over the covered ticks.
+         */
+        public long getTotal(Counter counter) {
+            return counters[counter.ordinal()];
+        }
+
+        String toJson() {
+            StringBuilder json = new StringBuilder(1024);
+            json.append("{\n  \"ticks\": ").append(ticks).append(",\n  \"sections\": {");
+            for (int i = 0; i < SECTIONS.length; i++) {
+                long[] stats = sections[i];
+                json.append(i == 0 ? "\n" : ",\n")
+                    .append("    \"").append(SECTIONS[i].name().toLowerCase()).append("\": {")
+                    .append("\"p50_ns\": ").append(stats[0])
+                    .append(", \"p99_ns\": ").append(stats[1])
+                    .append(", \"max_ns\": ").append(stats[2])
+                    .append(", \"mean_ns\": ").append(stats[3]).append('}');
+            }
+            json.append("\n  },\n  \"counters\": {");
+            for (int i = 0; i < COUNTERS.length; i++) {
+                json.append(i == 0 ? "\n" : ",\n")
+                    .append("    \"").append(COUNTERS[i].name().toLowerCase()).append("\": ").append(counters[i]);
+            }
+            return json.append("\n  }\n}\n").toString();
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package app.sedu.mc.parties.relay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import app.sedu.mc.parties.config.CommonSnapshot;
+import app.sedu.mc.parties.data.PartyRegistry;
+import app.sedu.mc.parties.data.PlayerIds;
+import app.sedu.mc.parties.network.ModPayloadPacket;
+import app.sedu.mc.parties.network.PartiesNetwork;
+import app.sedu.mc.parties.profile.PartyProfiler;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+/**
+ * Relays state published by other mods, like spell cast bars, to the
+ * publishing player's party mates.
+ * <p>
+ * Only the latest state per (member, channel) is kept, so any number of
+ * updates within a tick collapse into one. At the end of the tick each
+ * recipient gets a single packet with the changed states of the mates it is
+ * interested in: every mate with {@code allowGlobalUpdates}, otherwise only
+ * mates in the same dimension and within view distance. Channels are sent
+ * to each client by name once and by a small id after that.
+ * <p>
+ * Publishing an empty state clears the channel; members that log out have
+ * all their channels cleared.
+ * <p>
+ * A mate that was out of range when a member's state changed is remembered,
+ * and once it comes into range it is sent every channel of that member at
+ * once, current state or clear, so it never keeps a stale state. When a
+ * player leaves a party, it and its former mates are sent clears for each
+ * other's channels.
+ */
+public class ModPayloadRelay implements PartyRegistry.Listener {
+    private static final byte[] CLEARED = new byte[0];
+    /** How often mates that missed changes are checked for coming into range. */
+    private static final int CATCH_UP_TICKS = 10;
+
+    private final MinecraftServer server;
+    private final PlayerIds ids;
+    private final PartyRegistry registry;
+
+    private final Object2IntOpenHashMap<ResourceLocation> channelIds = new Object2IntOpenHashMap<>();
+    private final List<ResourceLocation> channels = new ArrayList<>();
+    private final Long2ObjectOpenHashMap<byte[]> latest = new Long2ObjectOpenHashMap<>();
+    private final LongOpenHashSet changed = new LongOpenHashSet();
+    private final LongArrayList sorted = new LongArrayList();
+    /** (recipient, member) pairs whose recipient was out of range for a change of the member. */
+    private final LongOpenHashSet missed = new LongOpenHashSet();
+    /** (recipient, member) pairs that stopped being mates and need their states cleared. */
+    private final LongArrayList departures = new LongArrayList();
+    private final LongArrayList pairs = new LongArrayList();
+    private final IntArrayList wholeMembers = new IntArrayList();
+
+    private final FriendlyByteBuf scratch = new FriendlyByteBuf(Unpooled.buffer(1024));
+    private final IntArrayList included = new IntArrayList();
+    private final IntArrayList definitions = new IntArrayList();
+    private int flushId;
+    private int[] stamp = new int[64];
+    private int[] start = new int[64];
+    private int[] length = new int[64];
+    private int[] firstKey = new int[64];
+    private int[] lastKey = new int[64];
+    private BitSet[] known = new BitSet[64];
+
+    public ModPayloadRelay(MinecraftServer server, PlayerIds ids, PartyRegistry registry) {
+        this.server = server;
+        this.ids = ids;
+        this.registry = registry;
+        channelIds.defaultReturnValue(-1);
+    }
+
+    /**
+     * Replaces a member's state on a channel. The state is sent at the end
+     * of the tick, and only if no later state replaces it first.
+     *
+     * @param member  the player the state belongs to
+     * @param channel  the channel, usually named after the publishing mod
+     * @param state  the encoded state, or an empty array to clear it
+     */
+    public void publish(ServerPlayer member, ResourceLocation channel, byte[] state) {
+        int id = PlayerIds.idOf(member);
+        if (id == PlayerIds.NONE) {
+            return;
+        }
+        long key = key(id, channelId(channel));
+        latest.put(key, state.length == 0 ? CLEARED : state);
+        changed.add(key);
+    }
+
+    /**
+     * Clears a member's state on a channel.
+     */
+    public void clear(ServerPlayer member, ResourceLocation channel) {
+        publish(member, channel, CLEARED);
+    }
+
+    private int channelId(ResourceLocation channel) {
+        int id = channelIds.getInt(channel);
+        if (id == -1) {
+            id = channels.size();
+            channels.add(channel);
+            channelIds.put(channel, id);
+        }
+        return id;
+    }
+
+    @Override
+    public void onJoin(int party, int player) {
+        // Resend what the party has so the joiner and the rest catch up.
+        int[] members = registry.getMembers(party);
+        int size = registry.getSize(party);
+        for (Long2ObjectMap.Entry<byte[]> entry : latest.long2ObjectEntrySet()) {
+            int member = (int) (entry.getLongKey() >>> 32);
+            for (int i = 0; i < size; i++) {
+                if (members[i] == member) {
+                    changed.add(entry.getLongKey());
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onLeave(int party, int player) {
+        // Called for every member when a party is disbanded, so this covers disbanding too.
+        int[] members = registry.getMembers(party);
+        for (int i = 0, n = registry.getSize(party); i < n; i++) {
+            departures.add(key(members[i], player));
+            departures.add(key(player, members[i]));
+        }
+    }
+
+    @SubscribeEvent
+    public void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
+        int id = PlayerIds.idOf((ServerPlayer) event.getEntity());
+        if (id != PlayerIds.NONE) {
+            ensureCapacity(id);
+            known[id] = null;
+        }
+    }
+
+    @SubscribeEvent
+    public void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        int id = PlayerIds.idOf((ServerPlayer) event.getEntity());
+        if (id == PlayerIds.NONE) {
+            return;
+        }
+        for (Long2ObjectMap.Entry<byte[]> entry : latest.long2ObjectEntrySet()) {
+            if ((int) (entry.getLongKey() >>> 32) == id) {
+                entry.setValue(CLEARED);
+                changed.add(entry.getLongKey());
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END) {
+            return;
+        }
+        boolean catchUp = !missed.isEmpty() && server.getTickCount() % CATCH_UP_TICKS == 0;
+        if (changed.isEmpty() && departures.isEmpty() && !catchUp) {
+            return;
+        }
+        long start = PartyProfiler.begin();
+        if (!changed.isEmpty()) {
+            flush();
+        }
+        if (!departures.isEmpty()) {
+            sendDepartures();
+        }
+        if (catchUp) {
+            catchUp();
+        }
+        PartyProfiler.end(PartyProfiler.Section.RELAY, start);
+    }
+
+    private void flush() {
+        ensureCapacity(ids.size() - 1);
+        flushId++;
+        scratch.clear();
+        encodeChanges();
+
+        boolean global = CommonSnapshot.get().globalModPackets;
+        double range = server.getPlayerList().getViewDistance() * 16.0;
+        for (int i = 0, n = ids.getOnlineCount(); i < n; i++) {
+            int recipient = ids.getOnlineId(i);
+            int party = registry.getParty(recipient);
+            if (party == PartyRegistry.NONE) {
+                continue;
+            }
+            ServerPlayer target = ids.getPlayer(recipient);
+            int[] members = registry.getMembers(party);
+            included.clear();
+            definitions.clear();
+            int bytes = 0;
+            for (int j = 0, size = registry.getSize(party); j < size; j++) {
+                int member = members[j];
+                if (member == recipient || stamp[member] != flushId) {
+                    continue;
+                }
+                if (!interested(target, ids.getPlayer(member), global, range)) {
+                    missed.add(key(recipient, member));
+                    continue;
+                }
+                included.add(member);
+                bytes += length[member];
+                collectDefinitions(recipient, member);
+            }
+            if (included.isEmpty()) {
+                continue;
+            }
+
+            ByteBuf payload = Unpooled.buffer(bytes + 16 + definitions.size() * 24);
+            FriendlyByteBuf out = new FriendlyByteBuf(payload);
+            out.writeVarInt(definitions.size());
+            for (int j = 0, size = definitions.size(); j < size; j++) {
+                int channel = definitions.getInt(j);
+                out.writeVarInt(channel);
+                out.writeResourceLocation(channels.get(channel));
+            }
+            out.writeVarInt(included.size());
+            for (int j = 0, size = included.size(); j < size; j++) {
+                int member = included.getInt(j);
+                payload.writeBytes(scratch, start[member], length[member]);
+            }
+            PartyProfiler.count(PartyProfiler.Counter.RELAY_PACKETS, 1);
+            PartyProfiler.count(PartyProfiler.Counter.RELAY_BYTES, payload.readableBytes());
+            PartiesNetwork.send(target, new ModPayloadPacket(payload));
+        }
+
+        // Cleared states have been sent and need not be kept.
+        ObjectIterator<Long2ObjectMap.Entry<byte[]>> it = latest.long2ObjectEntrySet().fastIterator();
+        while (it.hasNext()) {
+            if (it.next().getValue() == CLEARED) {
+                it.remove();
+            }
+        }
+        changed.clear();
+    }
+
+    /**
+     * Encodes each member's changed channels once into the scratch buffer:
+     * the member id, a channel count, then id, length and bytes per channel.
+     */
+    private void encodeChanges() {
+        sorted.clear();
+        sorted.addAll(changed);
+        // Keys start with the member id, so sorting groups them by member.
+        LongArrays.quickSort(sorted.elements(), 0, sorted.size());
+        int i = 0;
+        int n = sorted.size();
+        while (i < n) {
+            int member = (int) (sorted.getLong(i) >>> 32);
+            int end = i;
+            while (end < n && (int) (sorted.getLong(end) >>> 32) == member) {
+                end++;
+            }
+            stamp[member] = flushId;
+            start[member] = scratch.writerIndex();
+            firstKey[member] = i;
+            lastKey[member] = end;
+            scratch.writeVarInt(member);
+            scratch.writeVarInt(end - i);
+            for (int k = i; k < end; k++) {
+                long key = sorted.getLong(k);
+                byte[] state = latest.get(key);
+                scratch.writeVarInt((int) key);
+                scratch.writeByteArray(state == null ? CLEARED : state);
+            }
+            length[member] = scratch.writerIndex() - start[member];
+            i = end;
+        }
+    }
+
+    /**
+     * Clears each departed member's channels on its former mate's client.
+     */
+    private void sendDepartures() {
+        pairs.clear();
+        for (int i = 0, n = departures.size(); i < n; i++) {
+            long pair = departures.getLong(i);
+            // Rejoined within the same tick, the join already resent the states.
+            if (!registry.areMates((int) (pair >>> 32), (int) pair)) {
+                pairs.add(pair);
+            }
+        }
+        departures.clear();
+        sendWhole(true);
+    }
+
+    /**
+     * Sends mates that missed a member's changes while out of range the
+     * member's current states, once they are in range again.
+     */
+    private void catchUp() {
+        boolean global = CommonSnapshot.get().globalModPackets;
+        double range = server.getPlayerList().getViewDistance() * 16.0;
+        pairs.clear();
+        LongIterator it = missed.iterator();
+        while (it.hasNext()) {
+            long pair = it.nextLong();
+            int recipient = (int) (pair >>> 32);
+            int member = (int) pair;
+            ServerPlayer target = ids.getPlayer(recipient);
+            if (target == null || !registry.areMates(recipient, member)) {
+                it.remove();
+            } else if (interested(target, ids.getPlayer(member), global, range)) {
+                pairs.add(pair);
+                it.remove();
+            }
+        }
+        sendWhole(false);
+    }
+
+    /**
+     * Sends the (recipient, member) pairs collected in {@link #pairs} every
+     * channel the recipient knows for the member, one packet per recipient.
+     *
+     * @param clear  true to clear every channel, false to send current states and clear the rest
+     */
+    private void sendWhole(boolean clear) {
+        ensureCapacity(ids.size() - 1);
+        LongArrays.quickSort(pairs.elements(), 0, pairs.size());
+        int i = 0;
+        int n = pairs.size();
+        while (i < n) {
+            int recipient = (int) (pairs.getLong(i) >>> 32);
+            wholeMembers.clear();
+            while (i < n && (int) (pairs.getLong(i) >>> 32) == recipient) {
+                wholeMembers.add((int) pairs.getLong(i++));
+            }
+            ServerPlayer target = ids.getPlayer(recipient);
+            if (target != null) {
+                sendWholeTo(target, recipient, clear);
+            }
+        }
+        pairs.clear();
+    }
+
+    private void sendWholeTo(ServerPlayer target, int recipient, boolean clear) {
+        BitSet channelsKnown = known[recipient];
+        if (channelsKnown == null) {
+            channelsKnown = known[recipient] = new BitSet();
+        }
+        definitions.clear();
+        if (!clear) {
+            for (int j = 0, size = wholeMembers.size(); j < size; j++) {
+                int member = wholeMembers.getInt(j);
+                for (int channel = 0; channel < channels.size(); channel++) {
+                    if (!channelsKnown.get(channel) && latest.containsKey(key(member, channel))) {
+                        channelsKnown.set(channel);
+                        definitions.add(channel);
+                    }
+                }
+            }
+        }
+        if (channelsKnown.isEmpty()) {
+            return;
+        }
+
+        ByteBuf payload = Unpooled.buffer(64 + definitions.size() * 24);
+        FriendlyByteBuf out = new FriendlyByteBuf(payload);
+        out.writeVarInt(definitions.size());
+        for (int j = 0, size = definitions.size(); j < size; j++) {
+            int channel = definitions.getInt(j);
+            out.writeVarInt(channel);
+            out.writeResourceLocation(channels.get(channel));
+        }
+        out.writeVarInt(wholeMembers.size());
+        int count = channelsKnown.cardinality();
+        for (int j = 0, size = wholeMembers.size(); j < size; j++) {
+            int member = wholeMembers.getInt(j);
+            out.writeVarInt(member);
+            out.writeVarInt(count);
+            for (int channel = channelsKnown.nextSetBit(0); channel >= 0;
+                    channel = channelsKnown.nextSetBit(channel + 1)) {
+                byte[] state = clear ? null : latest.get(key(member, channel));
+                out.writeVarInt(channel);
+                out.writeByteArray(state == null ? CLEARED : state);
+            }
+        }
+        PartyProfiler.count(PartyProfiler.Counter.RELAY_PACKETS, 1);
+        PartyProfiler.count(PartyProfiler.Counter.RELAY_BYTES, payload.readableBytes());
+        PartiesNetwork.send(target, new ModPayloadPacket(payload));
+    }
+
+    private void collectDefinitions(int recipient, int member) {
+        BitSet channelsKnown = known[recipient];
+        if (channelsKnown == null) {
+            channelsKnown = known[recipient] = new BitSet();
+        }
+        for (int k = firstKey[member]; k < lastKey[member]; k++) {
+            int channel = (int) sorted.getLong(k);
+            if (!channelsKnown.get(channel)) {
+                channelsKnown.set(channel);
+                definitions.add(channel);
+            }
+        }
+    }
+
+    private static boolean interested(ServerPlayer recipient, ServerPlayer member, boolean global, double range) {
+        // Offline members only ever send clears, which everyone should get.
+        if (global || member == null) {
+            return true;
+        }
+        return recipient.level() == member.level() && recipient.distanceToSqr(member) <= range * range;
+    }
+
+    private static long key(int member, int channel) {
+        return (long) member << 32 | (channel & 0xFFFFFFFFL);
+    }
+
+    private void ensureCapacity(int id) {
+        if (id < stamp.length) {
+            return;
+        }
+        int capacity = Math.max(stamp.length * 2, id + 1);
+        stamp = Arrays.copyOf(stamp, capacity);
+        start = Arrays.copyOf(start, capacity);
+        length = Arrays.copyOf(length, capacity);
+        firstKey = Arrays.copyOf(firstKey, capacity);
+        lastKey = Arrays.copyOf(lastKey, capacity);
+        known = Arrays.copyOf(known, capacity);
+    }
+}
@@ -0,0 +1,48 @@
+package app.sedu.mc.parties.sync;
+
+/**
+ * The member stats that are synced to party members.
+ * <p>
+ * Each stat owns one bit of a member's dirty mask. Fast stats are sampled
+ * on the {@code fastInterval}, slow stats on the {@code playerSlowUpdateInterval},
+ * both as adjusted by the {@link SyncScheduler}.
+ */
+public enum MemberStat {
+    HEALTH(true, true),
+    MAX_HEALTH(true, true),
+    ABSORPTION(true, true),
+    ARMOR(true, false),
+    HUNGER(true, false),
+    SATURATION(true, true),
+    XP_LEVEL(true, false),
+    XP_PROGRESS(true, true),
+    TEMPERATURE(false, true),
+    GAME_MODE(false, false);
+
+    public static final MemberStat[] VALUES = values();
+    public static final int COUNT = VALUES.length;
+    public static final int ALL_MASK = (1 << COUNT) - 1;
+    public static final int FAST_MASK;
+    public static final int SLOW_MASK;
+
+    static {
+        int fast = 0;
+        for (MemberStat stat : VALUES) {
+            if (stat.fast) {
+                fast |= stat.bit;
+            }
+        }
+        FAST_MASK = fast;
+        SLOW_MASK = ALL_MASK & ~fast;
+    }
+
+    public final int bit = 1 << ordinal();
+    public final boolean fast;
+    /** Whether the stat is written as a float. Whole-number stats are written as var ints. */
+    public final boolean decimal;
+
+    MemberStat(boolean fast, boolean decimal) {
+        this.fast = fast;
+        this.decimal = decimal;
+    }
+}
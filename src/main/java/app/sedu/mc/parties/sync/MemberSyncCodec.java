@@ -0,0 +1,174 @@
+package app.sedu.mc.parties.sync;
+
+import java.util.Collection;
+import java.util.UUID;
+
+import it.unimi.dsi.fastutil.ints.IntList;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.effect.MobEffectInstance;
+
+/**
+ * Wire format of the member sync packet.
+ * <p>
+ * A packet is a header byte, a var int entry count and the entries. Each
+ * entry starts with the member id and a flag byte that says which sections
+ * follow: the member's identity, a masked set of stats, effect changes, or
+ * that the member went offline. A packet with {@link #RESET} replaces
+ * everything the client knows about its party.
+ * <p>
+ * Effects are sent as changes only: an effect id followed by its remaining
+ * duration and amplifier, or a duration of {@link #REMOVED}. Full entries
+ * set {@link #EFFECT_RESET} and list every active effect. The client
+ * expires effects on its own, so effects are never resent while they run.
+ */
+public final class MemberSyncCodec {
+    public static final int RESET = 1;
+
+    public static final int IDENTITY = 1;
+    public static final int STATS = 2;
+    public static final int OFFLINE = 4;
+    public static final int EFFECTS = 8;
+    public static final int EFFECT_RESET = 16;
+
+    /** Duration of an effect that was removed. */
+    public static final int REMOVED = 0;
+    /** Duration of an effect that never ends. */
+    public static final int INFINITE = -1;
+
+    private MemberSyncCodec() {}
+
+    /**
+     * Receives the contents of a member sync packet as it is read.
+     */
+    public interface Handler {
+        void reset();
+
+        void identity(int member, UUID uuid, String name, ResourceLocation dimension, boolean online);
+
+        void stat(int member, MemberStat stat, float value);
+
+        /**
+         * Called before the effects of a full entry, which replace all effects the member had.
+         */
+        void effectReset(int member);
+
+        /**
+         * @param effect  the effect's registry id
+         * @param duration  the remaining ticks, {@link #INFINITE}, or {@link #REMOVED}
+         */
+        void effect(int member, int effect, int amplifier, int duration);
+    }
+
+    public static void writeHeader(FriendlyByteBuf buf, boolean reset, int entries) {
+        buf.writeByte(reset ? RESET : 0);
+        buf.writeVarInt(entries);
+    }
+
+    /**
+     * Writes a delta entry containing only the stats in {@code mask} and the
+     * given effect changes.
+     *
+     * @param values  flat stat array, the member's stats start at {@code offset}
+     * @param effects  effect changes as (effect, amplifier, duration) triples
+     */
+    public static void writeDelta(FriendlyByteBuf buf, int member, int mask, float[] values, int offset,
+            IntList effects) {
+        buf.writeVarInt(member);
+        buf.writeByte((mask != 0 ? STATS : 0) | (effects.isEmpty() ? 0 : EFFECTS));
+        if (mask != 0) {
+            writeStats(buf, mask, values, offset);
+        }
+        if (!effects.isEmpty()) {
+            buf.writeVarInt(effects.size() / 3);
+            for (int i = 0, n = effects.size(); i < n; i += 3) {
+                writeEffect(buf, effects.getInt(i), effects.getInt(i + 1), effects.getInt(i + 2));
+            }
+        }
+    }
+
+    /**
+     * Writes a full entry for a member. Offline members carry their identity only.
+     *
+     * @param effects  the member's active effects, ignored when offline
+     */
+    public static void writeFull(FriendlyByteBuf buf, int member, UUID uuid, String name, ResourceLocation dimension,
+            float[] values, int offset, Collection<MobEffectInstance> effects) {
+        boolean online = dimension != null;
+        buf.writeVarInt(member);
+        buf.writeByte(online ? IDENTITY | STATS | EFFECT_RESET | EFFECTS : IDENTITY | OFFLINE);
+        buf.writeUUID(uuid);
+        buf.writeUtf(name == null ? "" : name);
+        if (online) {
+            buf.writeResourceLocation(dimension);
+            writeStats(buf, MemberStat.ALL_MASK, values, offset);
+            buf.writeVarInt(effects.size());
+            for (MobEffectInstance effect : effects) {
+                writeEffect(buf, BuiltInRegistries.MOB_EFFECT.getId(effect.getEffect()), effect.getAmplifier(),
+                    effect.isInfiniteDuration() ? INFINITE : effect.getDuration());
+            }
+        }
+    }
+
+    private static void writeEffect(FriendlyByteBuf buf, int effect, int amplifier, int duration) {
+        buf.writeVarInt(effect);
+        buf.writeVarInt(duration);
+        if (duration != REMOVED) {
+            buf.writeByte(amplifier);
+        }
+    }
+
+    private static void writeStats(FriendlyByteBuf buf, int mask, float[] values, int offset) {
+        buf.writeVarInt(mask);
+        for (MemberStat stat : MemberStat.VALUES) {
+            if ((mask & stat.bit) == 0) {
+                continue;
+            }
+            float value = values[offset + stat.ordinal()];
+            if (stat.decimal) {
+                buf.writeFloat(value);
+            } else {
+                buf.writeVarInt((int) value);
+            }
+        }
+    }
+
+    /**
+     * Reads a whole packet, passing its contents to the handler.
+     */
+    public static void read(FriendlyByteBuf buf, Handler handler) {
+        if ((buf.readByte() & RESET) != 0) {
+            handler.reset();
+        }
+        int entries = buf.readVarInt();
+        for (int i = 0; i < entries; i++) {
+            int member = buf.readVarInt();
+            int flags = buf.readByte();
+            if ((flags & IDENTITY) != 0) {
+                UUID uuid = buf.readUUID();
+                String name = buf.readUtf();
+                boolean online = (flags & OFFLINE) == 0;
+                handler.identity(member, uuid, name, online ? buf.readResourceLocation() : null, online);
+            }
+            if ((flags & STATS) != 0) {
+                int mask = buf.readVarInt();
+                for (MemberStat stat : MemberStat.VALUES) {
+                    if ((mask & stat.bit) != 0) {
+                        handler.stat(member, stat, stat.decimal ? buf.readFloat() : buf.readVarInt());
+                    }
+                }
+            }
+            if ((flags & EFFECT_RESET) != 0) {
+                handler.effectReset(member);
+            }
+            if ((flags & EFFECTS) != 0) {
+                for (int j = 0, n = buf.readVarInt(); j < n; j++) {
+                    int effect = buf.readVarInt();
+                    int duration = buf.readVarInt();
+                    handler.effect(member, effect, duration == REMOVED ? 0 : buf.readUnsignedByte(), duration);
+                }
+            }
+        }
+    }
+}
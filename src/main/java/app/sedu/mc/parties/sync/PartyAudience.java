@@ -0,0 +1,49 @@
+package app.sedu.mc.parties.sync;
+
+import app.sedu.mc.parties.data.PartyRegistry;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Connects the sync engine to the party registry: a player receives the
+ * state of its party mates, and membership changes trigger the full
+ * snapshots that keep clients consistent.
+ */
+public class PartyAudience implements PartySyncEngine.Audience, PartyRegistry.Listener {
+    private final PartyRegistry registry;
+    private final PartySyncEngine engine;
+
+    public PartyAudience(PartyRegistry registry, PartySyncEngine engine) {
+        this.registry = registry;
+        this.engine = engine;
+    }
+
+    @Override
+    public void collect(int recipient, IntArrayList out) {
+        int party = registry.getParty(recipient);
+        if (party == PartyRegistry.NONE) {
+            return;
+        }
+        int[] members = registry.getMembers(party);
+        for (int i = 0, n = registry.getSize(party); i < n; i++) {
+            if (members[i] != recipient) {
+                out.add(members[i]);
+            }
+        }
+    }
+
+    @Override
+    public void onJoin(int party, int player) {
+        engine.requestFull(player);
+        engine.broadcastFull(player);
+    }
+
+    @Override
+    public void onLeave(int party, int player) {
+        // The leaver gets an empty reset, the rest a reset without the leaver.
+        engine.requestFull(player);
+        int[] members = registry.getMembers(party);
+        for (int i = 0, n = registry.getSize(party); i < n; i++) {
+            engine.requestFull(members[i]);
+        }
+    }
+}
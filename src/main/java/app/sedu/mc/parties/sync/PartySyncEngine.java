@@ -0,0 +1,455 @@
+package app.sedu.mc.parties.sync;
+
+import java.util.Arrays;
+import java.util.List;
+
+import app.sedu.mc.parties.data.PlayerIds;
+import app.sedu.mc.parties.network.MemberSyncPacket;
+import app.sedu.mc.parties.network.PartiesNetwork;
+import app.sedu.mc.parties.profile.PartyProfiler;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.effect.MobEffect;
+import net.minecraft.world.effect.MobEffectInstance;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.living.MobEffectEvent;
+import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+/**
+ * Syncs party member stats to the members' party mates.
+ * <p>
+ * When a {@link SyncScheduler} says a member is due, the engine samples
+ * its fast or slow stats and sets a dirty bit for each stat that changed. It
+ * then sends each watcher of a changed member one packet holding only the
+ * dirty stats of the members it watches. Ticks without changes send
+ * nothing, and recipients watching no changed member are not visited.
+ * Full snapshots go out only when a player joins, reconnects or changes
+ * dimension, or when {@link #requestFull(int)} is called. Each member's
+ * entry is encoded once per flush and copied into every packet that needs
+ * it.
+ * <p>
+ * Potion effects are not sampled. Adding, removing and expiring an effect
+ * queues a change for the member, which rides along with the next flush;
+ * the remaining duration is adjusted for the ticks the change waited.
+ */
+public class PartySyncEngine {
+    private static final int STATS = MemberStat.COUNT;
+
+    /**
+     * Decides which members' data a recipient receives.
+     */
+    @FunctionalInterface
+    public interface Audience {
+        /**
+         * Adds the ids of the members whose state the recipient should receive.
+         *
+         * @param recipient  the id of the receiving player
+         * @param out  the list to add member ids to, already cleared
+         */
+        void collect(int recipient, IntArrayList out);
+
+        /**
+         * Adds the ids of the players that receive a member's state. By
+         * default the audience is assumed to be symmetric, so these are the
+         * members {@link #collect(int, IntArrayList)} adds for it.
+         *
+         * @param member  the id of the member
+         * @param out  the list to add player ids to, which may hold ids already
+         */
+        default void collectWatchers(int member, IntArrayList out) {
+            collect(member, out);
+        }
+    }
+
+    private final MinecraftServer server;
+    private final PlayerIds ids;
+    private final SyncScheduler scheduler;
+    private Audience audience = (recipient, out) -> {};
+
+    private float[] values = new float[64 * STATS];
+    private int[] dirty = new int[64];
+    private boolean[] forceFull = new boolean[64];
+    private boolean[] needsFull = new boolean[64];
+    private final IntArrayList dirtyMembers = new IntArrayList();
+    private final IntArrayList forceFullMembers = new IntArrayList();
+    private final IntArrayList needsFullPlayers = new IntArrayList();
+
+    /** Per member effect changes as (effect, amplifier, duration, tick) quads. */
+    private IntArrayList[] effectChanges = new IntArrayList[64];
+    private final IntArrayList effectMembers = new IntArrayList();
+    private final IntArrayList effectScratch = new IntArrayList();
+
+    private final FriendlyByteBuf scratch = new FriendlyByteBuf(Unpooled.buffer(4096));
+    private final IntArrayList watched = new IntArrayList();
+    private final IntArrayList recipients = new IntArrayList();
+    private int flushId;
+    private int[] recipientStamp = new int[64];
+    private int[] deltaStamp = new int[64];
+    private int[] deltaStart = new int[64];
+    private int[] deltaLength = new int[64];
+    private int[] fullStamp = new int[64];
+    private int[] fullStart = new int[64];
+    private int[] fullLength = new int[64];
+
+    public PartySyncEngine(MinecraftServer server, PlayerIds ids) {
+        this.server = server;
+        this.ids = ids;
+        this.scheduler = new SyncScheduler(server);
+    }
+
+    /**
+     * Replaces the policy that decides who receives which member's data.
+     *
+     * @param audience  the new audience
+     */
+    public void setAudience(Audience audience) {
+        this.audience = audience;
+    }
+
+    /**
+     * Makes the next flush send the player a full snapshot of every member it
+     * watches, replacing whatever the client knew before. Used when the
+     * player's party changes.
+     *
+     * @param player  the id of the player
+     */
+    public void requestFull(int player) {
+        ensureCapacity(player);
+        if (!needsFull[player]) {
+            needsFull[player] = true;
+            needsFullPlayers.add(player);
+        }
+    }
+
+    /**
+     * Makes the next flush send every watcher of the member a full entry for it.
+     *
+     * @param member  the id of the member
+     */
+    public void broadcastFull(int member) {
+        ensureCapacity(member);
+        if (!forceFull[member]) {
+            forceFull[member] = true;
+            forceFullMembers.add(member);
+        }
+    }
+
+    @SubscribeEvent
+    public void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
+        if (event.getEntity() instanceof ServerPlayer player) {
+            int id = ids.get(player.getUUID());
+            ensureCapacity(id);
+            sample(id, player, MemberStat.ALL_MASK);
+            requestFull(id);
+            broadcastFull(id);
+        }
+    }
+
+    @SubscribeEvent
+    public void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        int id = ids.get(event.getEntity().getUUID());
+        if (id != PlayerIds.NONE) {
+            scheduler.remove(id);
+            broadcastFull(id);
+        }
+    }
+
+    @SubscribeEvent
+    public void onPlayerChangedDimension(PlayerEvent.PlayerChangedDimensionEvent event) {
+        int id = ids.get(event.getEntity().getUUID());
+        if (id != PlayerIds.NONE) {
+            requestFull(id);
+            broadcastFull(id);
+        }
+    }
+
+    @SubscribeEvent
+    public void onPlayerRespawn(PlayerEvent.PlayerRespawnEvent event) {
+        int id = ids.get(event.getEntity().getUUID());
+        if (id != PlayerIds.NONE) {
+            requestFull(id);
+            broadcastFull(id);
+        }
+    }
+
+    @SubscribeEvent
+    public void onEffectAdded(MobEffectEvent.Added event) {
+        if (event.getEntity() instanceof ServerPlayer player) {
+            MobEffectInstance effect = event.getEffectInstance();
+            queueEffect(player, effect.getEffect(), effect.getAmplifier(),
+                effect.isInfiniteDuration() ? MemberSyncCodec.INFINITE : Math.max(1, effect.getDuration()));
+        }
+    }
+
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public void onEffectRemoved(MobEffectEvent.Remove event) {
+        if (event.getEntity() instanceof ServerPlayer player && event.getEffect() != null) {
+            queueEffect(player, event.getEffect(), 0, MemberSyncCodec.REMOVED);
+        }
+    }
+
+    @SubscribeEvent
+    public void onEffectExpired(MobEffectEvent.Expired event) {
+        if (event.getEntity() instanceof ServerPlayer player && event.getEffectInstance() != null) {
+            queueEffect(player, event.getEffectInstance().getEffect(), 0, MemberSyncCodec.REMOVED);
+        }
+    }
+
+    /**
+     * Queues an effect change, replacing an earlier change to the same effect
+     * that has not been sent yet.
+     */
+    private void queueEffect(ServerPlayer player, MobEffect effect, int amplifier, int duration) {
+        int id = PlayerIds.idOf(player);
+        if (id == PlayerIds.NONE) {
+            return;
+        }
+        ensureCapacity(id);
+        IntArrayList changes = effectChanges[id];
+        if (changes == null) {
+            changes = effectChanges[id] = new IntArrayList(8);
+        }
+        if (changes.isEmpty()) {
+            effectMembers.add(id);
+        }
+        int effectId = BuiltInRegistries.MOB_EFFECT.getId(effect);
+        int index = 0;
+        int n = changes.size();
+        while (index < n && changes.getInt(index) != effectId) {
+            index += 4;
+        }
+        if (index == n) {
+            changes.size(n + 4);
+            changes.set(index, effectId);
+        }
+        changes.set(index + 1, amplifier);
+        changes.set(index + 2, duration);
+        changes.set(index + 3, server.getTickCount());
+    }
+
+    private boolean hasEffectChanges(int member) {
+        return effectChanges[member] != null && !effectChanges[member].isEmpty();
+    }
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END) {
+            return;
+        }
+        int tick = server.getTickCount();
+        scheduler.tick(tick);
+        long start = PartyProfiler.begin();
+        for (int i = 0, n = ids.getOnlineCount(); i < n; i++) {
+            int id = ids.getOnlineId(i);
+            ServerPlayer player = ids.getPlayer(id);
+            int mask = scheduler.due(id, player, tick);
+            if (mask != 0) {
+                sample(id, player, mask);
+            }
+        }
+        boolean changes = !dirtyMembers.isEmpty() || !effectMembers.isEmpty() || !forceFullMembers.isEmpty()
+            || !needsFullPlayers.isEmpty();
+        scheduler.record(changes ? flush() : 0);
+        PartyProfiler.end(PartyProfiler.Section.SYNC, start);
+    }
+
+    private void sample(int id, ServerPlayer player, int mask) {
+        int base = id * STATS;
+        int changed = 0;
+        for (MemberStat stat : MemberStat.VALUES) {
+            if ((mask & stat.bit) == 0) {
+                continue;
+            }
+            float value = read(player, stat);
+            if (Float.floatToIntBits(values[base + stat.ordinal()]) != Float.floatToIntBits(value)) {
+                values[base + stat.ordinal()] = value;
+                changed |= stat.bit;
+            }
+        }
+        if (changed != 0 && dirty[id] == 0) {
+            dirtyMembers.add(id);
+        }
+        dirty[id] |= changed;
+    }
+
+    private static float read(ServerPlayer player, MemberStat stat) {
+        return switch (stat) {
+            case HEALTH -> player.getHealth();
+            case MAX_HEALTH -> player.getMaxHealth();
+            case ABSORPTION -> player.getAbsorptionAmount();
+            case ARMOR -> player.getArmorValue();
+            case HUNGER -> player.getFoodData().getFoodLevel();
+            case SATURATION -> player.getFoodData().getSaturationLevel();
+            case XP_LEVEL -> player.experienceLevel;
+            case XP_PROGRESS -> player.experienceProgress;
+            case TEMPERATURE -> player.level().getBiome(player.blockPosition()).value().getBaseTemperature();
+            case GAME_MODE -> player.gameMode.getGameModeForPlayer().getId();
+        };
+    }
+
+    /**
+     * @return the number of bytes sent.
+     */
+    private int flush() {
+        // Members loaded from storage may have ids the engine has not seen yet.
+        ensureCapacity(ids.size() - 1);
+        flushId++;
+        scratch.clear();
+        collectRecipients();
+        int sent = 0;
+        for (int i = 0, n = recipients.size(); i < n; i++) {
+            int recipient = recipients.getInt(i);
+            ServerPlayer target = ids.getPlayer(recipient);
+            if (target == null) {
+                continue;
+            }
+            watched.clear();
+            audience.collect(recipient, watched);
+            boolean full = needsFull[recipient];
+            int entries = 0;
+            int length = 0;
+            for (int j = 0, size = watched.size(); j < size; j++) {
+                int member = watched.getInt(j);
+                if (full || forceFull[member]) {
+                    encodeFull(member);
+                    length += fullLength[member];
+                    entries++;
+                } else if (dirty[member] != 0 || hasEffectChanges(member)) {
+                    encodeDelta(member);
+                    length += deltaLength[member];
+                    entries++;
+                }
+            }
+            if (entries == 0 && !full) {
+                continue;
+            }
+
+            ByteBuf payload = Unpooled.buffer(length + 6);
+            MemberSyncCodec.writeHeader(new FriendlyByteBuf(payload), full, entries);
+            for (int j = 0, size = watched.size(); j < size; j++) {
+                int member = watched.getInt(j);
+                if (full || forceFull[member]) {
+                    payload.writeBytes(scratch, fullStart[member], fullLength[member]);
+                } else if (dirty[member] != 0 || hasEffectChanges(member)) {
+                    payload.writeBytes(scratch, deltaStart[member], deltaLength[member]);
+                }
+            }
+            PartyProfiler.count(PartyProfiler.Counter.SYNC_PACKETS, 1);
+            PartyProfiler.count(PartyProfiler.Counter.SYNC_BYTES, payload.readableBytes());
+            sent += payload.readableBytes();
+            PartiesNetwork.send(target, new MemberSyncPacket(payload));
+        }
+
+        for (int i = 0, n = dirtyMembers.size(); i < n; i++) {
+            dirty[dirtyMembers.getInt(i)] = 0;
+        }
+        for (int i = 0, n = forceFullMembers.size(); i < n; i++) {
+            forceFull[forceFullMembers.getInt(i)] = false;
+        }
+        for (int i = 0, n = needsFullPlayers.size(); i < n; i++) {
+            needsFull[needsFullPlayers.getInt(i)] = false;
+        }
+        dirtyMembers.clear();
+        forceFullMembers.clear();
+        needsFullPlayers.clear();
+        for (int i = 0, n = effectMembers.size(); i < n; i++) {
+            effectChanges[effectMembers.getInt(i)].clear();
+        }
+        effectMembers.clear();
+        return sent;
+    }
+
+    /**
+     * Collects the players that need a packet this flush: the watchers of
+     * every changed member, plus the players owed a full snapshot.
+     */
+    private void collectRecipients() {
+        recipients.clear();
+        addWatchers(dirtyMembers);
+        addWatchers(effectMembers);
+        addWatchers(forceFullMembers);
+        for (int i = 0, n = needsFullPlayers.size(); i < n; i++) {
+            addRecipient(needsFullPlayers.getInt(i));
+        }
+    }
+
+    private void addWatchers(IntArrayList members) {
+        for (int i = 0, n = members.size(); i < n; i++) {
+            watched.clear();
+            audience.collectWatchers(members.getInt(i), watched);
+            for (int j = 0, size = watched.size(); j < size; j++) {
+                addRecipient(watched.getInt(j));
+            }
+        }
+    }
+
+    private void addRecipient(int player) {
+        if (recipientStamp[player] != flushId) {
+            recipientStamp[player] = flushId;
+            recipients.add(player);
+        }
+    }
+
+    private void encodeDelta(int member) {
+        if (deltaStamp[member] == flushId) {
+            return;
+        }
+        deltaStamp[member] = flushId;
+        deltaStart[member] = scratch.writerIndex();
+        effectScratch.clear();
+        if (hasEffectChanges(member)) {
+            IntArrayList changes = effectChanges[member];
+            int now = server.getTickCount();
+            for (int i = 0, n = changes.size(); i < n; i += 4) {
+                int duration = changes.getInt(i + 2);
+                if (duration > 0) {
+                    duration = Math.max(1, duration - (now - changes.getInt(i + 3)));
+                }
+                effectScratch.add(changes.getInt(i));
+                effectScratch.add(changes.getInt(i + 1));
+                effectScratch.add(duration);
+            }
+        }
+        MemberSyncCodec.writeDelta(scratch, member, dirty[member], values, member * STATS, effectScratch);
+        deltaLength[member] = scratch.writerIndex() - deltaStart[member];
+    }
+
+    private void encodeFull(int member) {
+        if (fullStamp[member] == flushId) {
+            return;
+        }
+        fullStamp[member] = flushId;
+        fullStart[member] = scratch.writerIndex();
+        ServerPlayer player = ids.getPlayer(member);
+        MemberSyncCodec.writeFull(scratch, member, ids.getUuid(member), ids.getName(member),
+            player == null ? null : player.level().dimension().location(), values, member * STATS,
+            player == null ? List.of() : player.getActiveEffects());
+        fullLength[member] = scratch.writerIndex() - fullStart[member];
+    }
+
+    private void ensureCapacity(int id) {
+        if (id < dirty.length) {
+            return;
+        }
+        int capacity = Math.max(dirty.length * 2, id + 1);
+        values = Arrays.copyOf(values, capacity * STATS);
+        dirty = Arrays.copyOf(dirty, capacity);
+        forceFull = Arrays.copyOf(forceFull, capacity);
+        needsFull = Arrays.copyOf(needsFull, capacity);
+        deltaStamp = Arrays.copyOf(deltaStamp, capacity);
+        deltaStart = Arrays.copyOf(deltaStart, capacity);
+        deltaLength = Arrays.copyOf(deltaLength, capacity);
+        fullStamp = Arrays.copyOf(fullStamp, capacity);
+        fullStart = Arrays.copyOf(fullStart, capacity);
+        fullLength = Arrays.copyOf(fullLength, capacity);
+        recipientStamp = Arrays.copyOf(recipientStamp, capacity);
+        effectChanges = Arrays.copyOf(effectChanges, capacity);
+    }
+}
@@ -0,0 +1,149 @@
+package app.sedu.mc.parties.sync;
+
+import java.util.Arrays;
+
+import app.sedu.mc.parties.config.CommonSnapshot;
+import app.sedu.mc.parties.data.PartyIdCache;
+import app.sedu.mc.parties.data.PartyRegistry;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+
+/**
+ * Decides on which ticks each member's stats are sampled.
+ * <p>
+ * Members are not all sampled on the same tick. Each party gets a phase
+ * from its id, and a member is due when the tick plus its phase is a
+ * multiple of its interval, so the sync work and packets of different
+ * parties land on different ticks while mates still share theirs. A
+ * member that missed its phase because the interval changed is sampled
+ * anyway once two intervals have passed.
+ * <p>
+ * Intervals start from {@code fastInterval} and
+ * {@code playerSlowUpdateInterval} and are stretched once per second by
+ * the larger of two load factors: the average tick time over 50 ms, and
+ * the bytes sent per tick over {@code syncByteBudget}. Members in combat
+ * or at low health are sampled at half the stretched fast interval.
+ */
+class SyncScheduler {
+    private static final int UPDATE_TICKS = 20;
+    private static final float MAX_STRETCH = 4f;
+    private static final float TARGET_MSPT = 50f;
+    private static final float LOW_HEALTH = 0.3f;
+    private static final int COMBAT_TICKS = 100;
+    private static final int MIN_URGENT_INTERVAL = 2;
+
+    private final MinecraftServer server;
+    private int[] lastFast = new int[64];
+    private int[] lastSlow = new int[64];
+    private boolean[] seen = new boolean[64];
+
+    private float bytesPerTick;
+    private float stretch = 1f;
+    private int fastInterval;
+    private int slowInterval;
+    private int urgentInterval;
+
+    SyncScheduler(MinecraftServer server) {
+        this.server = server;
+        update();
+    }
+
+    /**
+     * Records the bytes sent on a tick, to weigh them against the budget.
+     * Called once per tick, with 0 when nothing was sent.
+     */
+    void record(int bytes) {
+        bytesPerTick += (bytes - bytesPerTick) / UPDATE_TICKS;
+    }
+
+    /**
+     * Advances the scheduler by a tick, recomputing the intervals once per second.
+     */
+    void tick(int tick) {
+        if (tick % UPDATE_TICKS == 0) {
+            update();
+        }
+    }
+
+    private void update() {
+        CommonSnapshot config = CommonSnapshot.get();
+        float load = 1f;
+        if (config.adaptiveSync) {
+            load = Math.max(load, server.getAverageTickTime() / TARGET_MSPT);
+            int budget = config.syncByteBudget;
+            if (budget > 0) {
+                load = Math.max(load, bytesPerTick / budget);
+            }
+        }
+        // Ease towards the target so a single slow second does not halve the update rate.
+        float target = Math.min(MAX_STRETCH, load);
+        stretch = target > stretch ? stretch + (target - stretch) * 0.5f : target + (stretch - target) * 0.75f;
+        fastInterval = Math.round(config.fastInterval * stretch);
+        slowInterval = Math.round(config.slowInterval * stretch);
+        urgentInterval = config.adaptiveSync ? Math.max(MIN_URGENT_INTERVAL, fastInterval / 2) : fastInterval;
+    }
+
+    /**
+     * Retrieves the stats of a member that are due for sampling on a tick,
+     * and marks them as sampled.
+     *
+     * @param id  the member's id
+     * @param player  the member's entity
+     * @param tick  the current server tick
+     * @return the mask of {@link MemberStat} bits to sample, 0 if none are due.
+     */
+    int due(int id, ServerPlayer player, int tick) {
+        ensureCapacity(id);
+        if (!seen[id]) {
+            // Sampled in full on login, start counting from there.
+            seen[id] = true;
+            lastFast[id] = tick;
+            lastSlow[id] = tick;
+            return 0;
+        }
+        int party = PartyIdCache.partyOf(player);
+        int phase = party != PartyRegistry.NONE ? party : id;
+        int mask = 0;
+        int fast = isUrgent(player) ? urgentInterval : fastInterval;
+        if (isDue(tick, phase, fast, lastFast[id])) {
+            mask |= MemberStat.FAST_MASK;
+            lastFast[id] = tick;
+        }
+        if (isDue(tick, phase, slowInterval, lastSlow[id])) {
+            mask |= MemberStat.SLOW_MASK;
+            lastSlow[id] = tick;
+        }
+        return mask;
+    }
+
+    /**
+     * Forgets a member, so its next sample starts a new schedule.
+     */
+    void remove(int id) {
+        if (id < seen.length) {
+            seen[id] = false;
+        }
+    }
+
+    private static boolean isDue(int tick, int phase, int interval, int last) {
+        int elapsed = tick - last;
+        return elapsed > 0 && ((tick + phase) % interval == 0 || elapsed >= 2 * interval);
+    }
+
+    private static boolean isUrgent(ServerPlayer player) {
+        // Both timestamps are entity tick counts, and vanilla forgets an attacker after 100 ticks.
+        return player.getHealth() <= player.getMaxHealth() * LOW_HEALTH
+            || player.getLastHurtByMob() != null
+            || player.tickCount - player.getLastHurtMobTimestamp() < COMBAT_TICKS && player.getLastHurtMob() != null;
+    }
+
+    private void ensureCapacity(int id) {
+        if (id < seen.length) {
+            return;
+        }
+        int capacity = Math.max(seen.length * 2, id + 1);
+        lastFast = Arrays.copyOf(lastFast, capacity);
+        lastSlow = Arrays.copyOf(lastSlow, capacity);
+        seen = Arrays.copyOf(seen, capacity);
+    }
+}
@@ -0,0 +1,89 @@
+package app.sedu.mc.parties.team;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import app.sedu.mc.parties.profile.PartyProfiler;
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientGamePacketListener;
+import net.minecraft.network.protocol.game.ClientboundBundlePacket;
+import net.minecraft.server.players.PlayerList;
+
+/**
+ * Collects the team packets the server scoreboard broadcasts while a batch
+ * is open, and sends them as bundles when it closes. Clients then apply a
+ * whole tick of team changes at once instead of one packet at a time.
+ * While the {@link PartyProfiler} is enabled, the packets and bytes sent to
+ * all players are counted. Only used from the server thread.
+ */
+public final class ScoreboardBatch {
+    /** Stays below the client's limit on packets per bundle. */
+    private static final int BUNDLE_LIMIT = 4000;
+
+    private static boolean capturing;
+    private static final List<Packet<ClientGamePacketListener>> packets = new ArrayList<>();
+
+    private ScoreboardBatch() {}
+
+    public static void begin() {
+        capturing = true;
+    }
+
+    /**
+     * Broadcasts a scoreboard packet, or holds it until {@link #end(PlayerList)}
+     * while a batch is open. Called from the scoreboard mixin.
+     */
+    @SuppressWarnings("unchecked")
+    public static void broadcast(PlayerList players, Packet<?> packet) {
+        if (capturing) {
+            packets.add((Packet<ClientGamePacketListener>) packet);
+        } else {
+            players.broadcastAll(packet);
+        }
+    }
+
+    /**
+     * Closes the batch and broadcasts what it collected.
+     *
+     * @return the number of packets that were batched.
+     */
+    public static int end(PlayerList players) {
+        capturing = false;
+        int count = packets.size();
+        if (count > 0 && PartyProfiler.isEnabled()) {
+            int recipients = players.getPlayerCount();
+            PartyProfiler.count(PartyProfiler.Counter.TEAM_PACKETS, (long) count * recipients);
+            PartyProfiler.count(PartyProfiler.Counter.TEAM_BYTES, encodedSize() * recipients);
+        }
+        if (count == 1) {
+            players.broadcastAll(packets.get(0));
+        } else {
+            for (int i = 0; i < count; i += BUNDLE_LIMIT) {
+                players.broadcastAll(new ClientboundBundlePacket(
+                    new ArrayList<>(packets.subList(i, Math.min(count, i + BUNDLE_LIMIT)))));
+            }
+        }
+        packets.clear();
+        return count;
+    }
+
+    /**
+     * Encodes the collected packets once more to measure them. Only done
+     * while profiling.
+     *
+     * @return the total encoded size of the packets, without packet ids.
+     */
+    private static long encodedSize() {
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer(256));
+        long size = 0;
+        for (Packet<ClientGamePacketListener> packet : packets) {
+            buf.clear();
+            packet.write(buf);
+            size += buf.writerIndex();
+        }
+        buf.release();
+        return size;
+    }
+}
@@ -0,0 +1,207 @@
+package app.sedu.mc.parties.team;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import app.sedu.mc.parties.Parties;
+import app.sedu.mc.parties.config.CommonSnapshot;
+import app.sedu.mc.parties.data.PartyRegistry;
+import app.sedu.mc.parties.data.PlayerIds;
+import app.sedu.mc.parties.profile.PartyProfiler;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.ServerScoreboard;
+import net.minecraft.world.scores.PlayerTeam;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+/**
+ * Mirrors parties onto vanilla scoreboard teams when {@code useVanillaTeams}
+ * is on.
+ * <p>
+ * Membership changes only mark their party dirty. Once per tick the members
+ * of each dirty party are diffed against its team, and only the missing
+ * adds and removes are applied, inside a {@link ScoreboardBatch} so clients
+ * receive them as one bundle. At most {@link #OPS_PER_TICK} operations run
+ * per tick, and the remaining parties wait for the next, so a mass disband
+ * is spread over several ticks instead of spiking one.
+ * <p>
+ * Teams are never deleted. A disbanded party's emptied team goes back to a
+ * pool and is handed to the next new party, which avoids the team create
+ * and remove broadcasts entirely once the pool has warmed up.
+ */
+public class VanillaTeamSync implements PartyRegistry.Listener {
+    private static final String PREFIX = Parties.MODID + "_";
+    private static final int OPS_PER_TICK = 256;
+
+    private final MinecraftServer server;
+    private final PlayerIds ids;
+    private final PartyRegistry registry;
+    private final ArrayDeque<PlayerTeam> pool = new ArrayDeque<>();
+    private int created;
+
+    private PlayerTeam[] teamOf = new PlayerTeam[16];
+    private final IntArrayList dirty = new IntArrayList();
+    private boolean[] isDirty = new boolean[16];
+    private final Set<String> desired = new HashSet<>();
+    private final List<String> scratch = new ArrayList<>();
+
+    public VanillaTeamSync(MinecraftServer server, PlayerIds ids, PartyRegistry registry) {
+        this.server = server;
+        this.ids = ids;
+        this.registry = registry;
+        // Teams from an earlier run are stored with the world; reuse them.
+        for (PlayerTeam team : server.getScoreboard().getPlayerTeams()) {
+            if (team.getName().startsWith(PREFIX)) {
+                pool.add(team);
+                created++;
+            }
+        }
+        ScoreboardBatch.begin();
+        for (PlayerTeam team : pool) {
+            scratch.addAll(team.getPlayers());
+            for (String player : scratch) {
+                server.getScoreboard().removePlayerFromTeam(player, team);
+            }
+            scratch.clear();
+        }
+        ScoreboardBatch.end(server.getPlayerList());
+    }
+
+    @Override
+    public void onCreate(int party, int leader) {
+        markDirty(party);
+    }
+
+    @Override
+    public void onJoin(int party, int player) {
+        markDirty(party);
+    }
+
+    @Override
+    public void onLeave(int party, int player) {
+        markDirty(party);
+    }
+
+    @Override
+    public void onDisband(int party) {
+        markDirty(party);
+    }
+
+    private void markDirty(int party) {
+        if (party >= isDirty.length) {
+            int capacity = Math.max(isDirty.length * 2, party + 1);
+            isDirty = Arrays.copyOf(isDirty, capacity);
+            teamOf = Arrays.copyOf(teamOf, capacity);
+        }
+        if (!isDirty[party]) {
+            isDirty[party] = true;
+            dirty.add(party);
+        }
+    }
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || dirty.isEmpty() || !CommonSnapshot.get().hookVanillaTeams) {
+            return;
+        }
+        long start = PartyProfiler.begin();
+        ScoreboardBatch.begin();
+        int ops = 0;
+        int done = 0;
+        while (done < dirty.size() && ops < OPS_PER_TICK) {
+            int party = dirty.getInt(done++);
+            isDirty[party] = false;
+            ops += sync(party);
+        }
+        dirty.removeElements(0, done);
+        ScoreboardBatch.end(server.getPlayerList());
+        PartyProfiler.end(PartyProfiler.Section.TEAMS, start);
+    }
+
+    /**
+     * Brings a party's team in line with the party.
+     *
+     * @return the number of scoreboard operations it took.
+     */
+    private int sync(int party) {
+        ServerScoreboard scoreboard = server.getScoreboard();
+        PlayerTeam team = teamOf[party];
+        if (team != null && scoreboard.getPlayerTeam(team.getName()) != team) {
+            // Removed by a command, start over with a fresh team.
+            team = null;
+        }
+        int ops = 0;
+        if (!registry.exists(party)) {
+            if (team != null) {
+                ops += removeAll(scoreboard, team);
+                pool.add(team);
+                teamOf[party] = null;
+            }
+            return ops;
+        }
+        if (team == null) {
+            team = acquire(scoreboard);
+            teamOf[party] = team;
+            ops++;
+        }
+        boolean friendlyFire = CommonSnapshot.get().friendlyFire;
+        if (team.isAllowFriendlyFire() != friendlyFire) {
+            team.setAllowFriendlyFire(friendlyFire);
+            ops++;
+        }
+
+        int[] members = registry.getMembers(party);
+        for (int i = 0, n = registry.getSize(party); i < n; i++) {
+            String name = ids.getName(members[i]);
+            if (name != null) {
+                desired.add(name);
+            }
+        }
+        for (String player : team.getPlayers()) {
+            if (!desired.remove(player)) {
+                scratch.add(player);
+            }
+        }
+        for (String player : scratch) {
+            scoreboard.removePlayerFromTeam(player, team);
+        }
+        for (String player : desired) {
+            scoreboard.addPlayerToTeam(player, team);
+        }
+        ops += scratch.size() + desired.size();
+        scratch.clear();
+        desired.clear();
+        return ops;
+    }
+
+    private PlayerTeam acquire(ServerScoreboard scoreboard) {
+        while (!pool.isEmpty()) {
+            PlayerTeam team = pool.poll();
+            if (scoreboard.getPlayerTeam(team.getName()) == team) {
+                return team;
+            }
+        }
+        String name;
+        do {
+            name = PREFIX + created++;
+        } while (scoreboard.getPlayerTeam(name) != null);
+        PlayerTeam team = scoreboard.addPlayerTeam(name);
+        team.setSeeFriendlyInvisibles(true);
+        return team;
+    }
+
+    private int removeAll(ServerScoreboard scoreboard, PlayerTeam team) {
+        scratch.addAll(team.getPlayers());
+        for (String player : scratch) {
+            scoreboard.removePlayerFromTeam(player, team);
+        }
+        int ops = scratch.size();
+        scratch.clear();
+        return ops;
+    }
+}
@@ -0,0 +1,281 @@
+package app.sedu.mc.parties.xp;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import app.sedu.mc.parties.config.CommonSnapshot;
+import app.sedu.mc.parties.data.PartyRegistry;
+import app.sedu.mc.parties.data.PlayerIds;
+import app.sedu.mc.parties.profile.PartyProfiler;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.Level;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.entity.player.PlayerXpEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+/**
+ * Shares experience between party members in one batch per tick.
+ * <p>
+ * Experience gained by a party member during a tick is held back and added
+ * to that member's pending total. At the end of the tick, each pending
+ * total is split between the eligible members of the gainer's party, and
+ * every member receives their summed share with a single
+ * {@code giveExperiencePoints} call. Eligibility uses member positions
+ * captured at most once per tick, and members are first compared by
+ * share-range sized grid cell, so most out-of-range members are rejected
+ * without a distance calculation.
+ */
+public class XpShareStage {
+    private final MinecraftServer server;
+    private final PlayerIds ids;
+    private final PartyRegistry registry;
+
+    private int[] pending = new int[64];
+    private int[] payout = new int[64];
+    private boolean[] orbPickup = new boolean[64];
+    private final IntArrayList gainers = new IntArrayList();
+    private final IntArrayList payees = new IntArrayList();
+    private int[] eligible = new int[8];
+    private boolean distributing;
+    private boolean orbsFlagged;
+    private int[] commandTick = new int[64];
+
+    private int[] positionTick = new int[64];
+    private double[] x = new double[64];
+    private double[] y = new double[64];
+    private double[] z = new double[64];
+    private int[] cellX = new int[64];
+    private int[] cellZ = new int[64];
+    @SuppressWarnings("unchecked")
+    private ResourceKey<Level>[] dimension = new ResourceKey[64];
+
+    public XpShareStage(MinecraftServer server, PlayerIds ids, PartyRegistry registry) {
+        this.server = server;
+        this.ids = ids;
+        this.registry = registry;
+        Arrays.fill(positionTick, -1);
+        Arrays.fill(commandTick, -1);
+    }
+
+    /**
+     * Marks the targets of an {@code /xp} or {@code /experience} command, so
+     * the experience it gives them is not shared when {@code ignoreCommand}
+     * is on. Called by mixin however the command was run, including through
+     * {@code execute} and functions.
+     *
+     * @param targets  the players the command gives experience to
+     */
+    public void markCommandTargets(Collection<? extends ServerPlayer> targets) {
+        int tick = server.getTickCount();
+        for (ServerPlayer target : targets) {
+            int id = PlayerIds.idOf(target);
+            if (id != PlayerIds.NONE) {
+                ensureCapacity(id);
+                commandTick[id] = tick;
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public void onPickupXp(PlayerXpEvent.PickupXp event) {
+        if (event.getEntity() instanceof ServerPlayer player && PlayerIds.idOf(player) != PlayerIds.NONE) {
+            int id = PlayerIds.idOf(player);
+            ensureCapacity(id);
+            orbPickup[id] = true;
+            orbsFlagged = true;
+        }
+    }
+
+    @SubscribeEvent(priority = EventPriority.LOW)
+    public void onXpChange(PlayerXpEvent.XpChange event) {
+        int amount = event.getAmount();
+        if (distributing || amount <= 0 || !(event.getEntity() instanceof ServerPlayer player)) {
+            return;
+        }
+        int id = PlayerIds.idOf(player);
+        if (id == PlayerIds.NONE) {
+            return;
+        }
+        ensureCapacity(id);
+        boolean orb = orbPickup[id];
+        orbPickup[id] = false;
+        boolean command = commandTick[id] == server.getTickCount();
+        commandTick[id] = -1;
+
+        CommonSnapshot config = CommonSnapshot.get();
+        if (!config.enableXpShare) {
+            return;
+        }
+        if (!orb && command && config.ignoreXpCommand) {
+            return;
+        }
+        int party = registry.getParty(id);
+        if (party == PartyRegistry.NONE || registry.getSize(party) < 2) {
+            return;
+        }
+
+        if (pending[id] == 0) {
+            gainers.add(id);
+        }
+        pending[id] += amount;
+        event.setCanceled(true);
+    }
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END) {
+            return;
+        }
+        if (!gainers.isEmpty()) {
+            long start = PartyProfiler.begin();
+            PartyProfiler.count(PartyProfiler.Counter.XP_SHARES, gainers.size());
+            distribute();
+            PartyProfiler.end(PartyProfiler.Section.XP_SHARE, start);
+        }
+        if (orbsFlagged) {
+            // Orbs fully absorbed by Mending never reach XpChange.
+            Arrays.fill(orbPickup, false);
+            orbsFlagged = false;
+        }
+    }
+
+    private void distribute() {
+        CommonSnapshot config = CommonSnapshot.get();
+        boolean global = config.enableGlobalShare;
+        int range = config.shareRange;
+        double rangeSqr = (double) range * range;
+        int tick = server.getTickCount();
+
+        for (int i = 0, n = gainers.size(); i < n; i++) {
+            int gainer = gainers.getInt(i);
+            int amount = pending[gainer];
+            pending[gainer] = 0;
+            int party = registry.getParty(gainer);
+            if (party == PartyRegistry.NONE || ids.getPlayer(gainer) == null) {
+                // Left the party or logged out during the tick: the gainer keeps everything.
+                addPayout(gainer, amount);
+                continue;
+            }
+
+            capture(gainer, range, tick);
+            int[] members = registry.getMembers(party);
+            int size = registry.getSize(party);
+            if (eligible.length < size) {
+                eligible = new int[size];
+            }
+            int count = 0;
+            for (int j = 0; j < size; j++) {
+                int member = members[j];
+                if (member == gainer) {
+                    eligible[count++] = member;
+                } else if (ids.getPlayer(member) != null
+                        && (global || inRange(gainer, capture(member, range, tick), rangeSqr))) {
+                    eligible[count++] = member;
+                }
+            }
+            for (int j = 0; j < count; j++) {
+                if (payout[eligible[j]] == 0) {
+                    payees.add(eligible[j]);
+                }
+            }
+            split(amount, gainer, eligible, count, payout);
+        }
+        gainers.clear();
+
+        distributing = true;
+        try {
+            for (int i = 0, n = payees.size(); i < n; i++) {
+                int payee = payees.getInt(i);
+                int amount = payout[payee];
+                payout[payee] = 0;
+                ServerPlayer player = ids.getPlayer(payee);
+                if (player != null && amount > 0) {
+                    player.giveExperiencePoints(amount);
+                }
+            }
+        } finally {
+            distributing = false;
+            payees.clear();
+        }
+    }
+
+    /**
+     * Splits an amount of experience evenly between eligible members. The
+     * remainder of the division goes to the gainer.
+     *
+     * @param amount  the experience to split
+     * @param gainer  the member that gained the experience, also in {@code eligible}
+     * @param eligible  the members receiving a share
+     * @param count  the number of valid entries in {@code eligible}
+     * @param payout  the payout totals, indexed by member id
+     */
+    public static void split(int amount, int gainer, int[] eligible, int count, int[] payout) {
+        int share = amount / count;
+        for (int i = 0; i < count; i++) {
+            payout[eligible[i]] += share;
+        }
+        payout[gainer] += amount - share * count;
+    }
+
+    private void addPayout(int member, int amount) {
+        if (amount == 0) {
+            return;
+        }
+        ensureCapacity(member);
+        if (payout[member] == 0) {
+            payees.add(member);
+        }
+        payout[member] += amount;
+    }
+
+    private int capture(int member, int range, int tick) {
+        ensureCapacity(member);
+        if (positionTick[member] != tick) {
+            ServerPlayer player = ids.getPlayer(member);
+            positionTick[member] = tick;
+            x[member] = player.getX();
+            y[member] = player.getY();
+            z[member] = player.getZ();
+            cellX[member] = Math.floorDiv(player.getBlockX(), range);
+            cellZ[member] = Math.floorDiv(player.getBlockZ(), range);
+            dimension[member] = player.level().dimension();
+        }
+        return member;
+    }
+
+    private boolean inRange(int a, int b, double rangeSqr) {
+        if (dimension[a] != dimension[b]
+                || Math.abs(cellX[a] - cellX[b]) > 1 || Math.abs(cellZ[a] - cellZ[b]) > 1) {
+            return false;
+        }
+        double dx = x[a] - x[b];
+        double dy = y[a] - y[b];
+        double dz = z[a] - z[b];
+        return dx * dx + dy * dy + dz * dz <= rangeSqr;
+    }
+
+    private void ensureCapacity(int id) {
+        if (id < pending.length) {
+            return;
+        }
+        int old = pending.length;
+        int capacity = Math.max(old * 2, id + 1);
+        pending = Arrays.copyOf(pending, capacity);
+        payout = Arrays.copyOf(payout, capacity);
+        orbPickup = Arrays.copyOf(orbPickup, capacity);
+        commandTick = Arrays.copyOf(commandTick, capacity);
+        Arrays.fill(commandTick, old, capacity, -1);
+        positionTick = Arrays.copyOf(positionTick, capacity);
+        Arrays.fill(positionTick, old, capacity, -1);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        z = Arrays.copyOf(z, capacity);
+        cellX = Arrays.copyOf(cellX, capacity);
+        cellZ = Arrays.copyOf(cellZ, capacity);
+        dimension = Arrays.copyOf(dimension, capacity);
+    }
+}
@@ -0,0 +1,168 @@
+package app.sedu.mc.parties.data;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PartyStoreTest {
+    private static final int PLAYERS = 24;
+
+    @TempDir
+    Path dir;
+
+    private final PlayerIds ids = new PlayerIds();
+    private final PartyRegistry registry = new PartyRegistry(() -> 8);
+    private final UUID[] uuids = new UUID[PLAYERS];
+
+    @Test
+    void replaysJournalOverOlderSnapshot() throws Exception {
+        Path saved = dir.resolve("saved");
+        PartyStore store = open(saved, ids, registry);
+        play();
+        store.sync();
+        // As if the server crashed before the next compaction.
+        Path crashed = Files.createDirectories(dir.resolve("crashed"));
+        Files.copy(saved.resolve("parties.journal"), crashed.resolve("parties.journal"));
+        store.close();
+
+        PlayerIds loadedIds = new PlayerIds();
+        PartyRegistry loaded = new PartyRegistry(() -> 8);
+        open(crashed, loadedIds, loaded).close();
+        assertSame(ids, registry, loadedIds, loaded);
+    }
+
+    @Test
+    void skipsJournalAlreadyInSnapshot() throws Exception {
+        PartyStore store = open(dir, ids, registry);
+        play();
+        store.sync();
+        byte[] journal = Files.readAllBytes(dir.resolve("parties.journal"));
+        // Writes a snapshot with every change and truncates the journal.
+        store.close();
+        // As if the server crashed after swapping in the snapshot, before truncating.
+        Files.write(dir.resolve("parties.journal"), journal);
+
+        PlayerIds loadedIds = new PlayerIds();
+        PartyRegistry loaded = new PartyRegistry(() -> 8);
+        open(dir, loadedIds, loaded).close();
+        assertSame(ids, registry, loadedIds, loaded);
+    }
+
+    @Test
+    void appendsToJournalAfterLoading() throws Exception {
+        PartyStore store = open(dir, ids, registry);
+        play();
+        store.close();
+
+        PlayerIds reloadedIds = new PlayerIds();
+        PartyRegistry reloaded = new PartyRegistry(() -> 8);
+        store = open(dir, reloadedIds, reloaded);
+        int player = reloadedIds.get(uuids[1]);
+        reloaded.leave(player);
+        reloaded.create(player);
+        store.sync();
+        Path crashed = Files.createDirectories(dir.resolve("crashed"));
+        Files.copy(dir.resolve("parties.dat"), crashed.resolve("parties.dat"));
+        Files.copy(dir.resolve("parties.journal"), crashed.resolve("parties.journal"));
+        store.close();
+
+        PlayerIds loadedIds = new PlayerIds();
+        PartyRegistry loaded = new PartyRegistry(() -> 8);
+        open(crashed, loadedIds, loaded).close();
+        assertSame(reloadedIds, reloaded, loadedIds, loaded);
+    }
+
+    @Test
+    void keepsUnreadableSnapshot() throws Exception {
+        byte[] snapshot = {0x50, 0x52, 0x54, 0x59, 0, 0, 0, 2, 0, 0};
+        Files.write(dir.resolve("parties.dat"), snapshot);
+
+        open(dir, ids, registry).close();
+        assertArrayEquals(snapshot, Files.readAllBytes(dir.resolve("parties.dat.corrupt")));
+    }
+
+    @Test
+    void keepsJournalWithCorruptRecord() throws Exception {
+        PartyStore store = open(dir, ids, registry);
+        play();
+        store.sync();
+        Path crashed = Files.createDirectories(dir.resolve("crashed"));
+        byte[] journal = Files.readAllBytes(dir.resolve("parties.journal"));
+        // An unknown operation in the second record.
+        journal[12 + 21] = 9;
+        Files.write(crashed.resolve("parties.journal"), journal);
+        store.close();
+
+        open(crashed, new PlayerIds(), new PartyRegistry(() -> 8)).close();
+        assertArrayEquals(journal, Files.readAllBytes(crashed.resolve("parties.journal.corrupt")));
+    }
+
+    private static PartyStore open(Path dir, PlayerIds playerIds, PartyRegistry target) {
+        PartyStore store = new PartyStore(dir, () -> 0, playerIds, target);
+        store.load();
+        target.addListener(store);
+        return store;
+    }
+
+    /**
+     * Runs every kind of membership change through the registry.
+     */
+    private void play() {
+        int[] players = new int[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            uuids[i] = new UUID(0, i + 1);
+            players[i] = ids.getOrCreate(uuids[i], "player" + i);
+        }
+        int[] parties = new int[4];
+        for (int p = 0; p < parties.length; p++) {
+            parties[p] = registry.create(players[p * 6]);
+            for (int i = 1; i < 6; i++) {
+                registry.join(parties[p], players[p * 6 + i]);
+            }
+        }
+        registry.leave(players[0]);
+        registry.setLeader(parties[1], players[9]);
+        registry.leave(players[8]);
+        registry.join(parties[0], players[8]);
+        registry.disband(parties[2]);
+        registry.create(players[12]);
+        registry.join(registry.getParty(players[12]), players[13]);
+    }
+
+    /**
+     * Asserts that a loaded registry holds the same parties, leaders and
+     * members as the expected one.
+     */
+    private void assertSame(PlayerIds expectedIds, PartyRegistry expected, PlayerIds loadedIds, PartyRegistry loaded) {
+        assertEquals(expected.getPartyCount(), loaded.getPartyCount());
+        for (int party = 0; party < expected.getPartyCapacity(); party++) {
+            assertEquals(expected.exists(party), loaded.exists(party), "party " + party);
+            if (!expected.exists(party)) {
+                continue;
+            }
+            assertEquals(expectedIds.getUuid(expected.getLeader(party)), loadedIds.getUuid(loaded.getLeader(party)));
+            assertEquals(members(expectedIds, expected, party), members(loadedIds, loaded, party), "party " + party);
+        }
+        for (UUID uuid : uuids) {
+            assertEquals(expected.getParty(expectedIds.get(uuid)), loaded.getParty(loadedIds.get(uuid)),
+                uuid.toString());
+        }
+    }
+
+    private static Set<UUID> members(PlayerIds playerIds, PartyRegistry target, int party) {
+        Set<UUID> members = new HashSet<>();
+        int[] list = target.getMembers(party);
+        for (int i = 0, n = target.getSize(party); i < n; i++) {
+            members.add(playerIds.getUuid(list[i]));
+        }
+        return members;
+    }
+}